@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movasync;
+
+import movasync.model.Actor;
+import movasync.model.CastItem;
+import movasync.model.Movie;
+import movasync.model.SearchItem;
+import movlazy.dto.CastItemDto;
+import movlazy.dto.SearchItemDto;
+import util.AsyncIterable;
+import util.PagedPublisher;
+import util.Queries;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+import java.util.function.IntFunction;
+
+import static util.AsyncQueries.flatMap;
+import static util.AsyncQueries.iterate;
+import static util.AsyncQueries.map;
+import static util.AsyncQueries.mapAsync;
+import static util.AsyncQueries.of;
+import static util.AsyncQueries.takeWhile;
+
+/**
+ * Non-blocking counterpart of {@link movlazy.MovService}.
+ *
+ * Caches hold the futures of in-flight requests, thus concurrent requests
+ * for the same id share a single fetch. A failed fetch is removed from the
+ * cache, so the next request retries it.
+ */
+public class AsyncMovService {
+
+    private final AsyncMovWebApi movWebApi;
+    private final ConcurrentMap<Integer, CompletableFuture<Movie>> movies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CompletableFuture<List<CastItem>>> cast = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CompletableFuture<Actor>> actors = new ConcurrentHashMap<>();
+
+    public AsyncMovService(AsyncMovWebApi movWebApi) {
+        this.movWebApi = movWebApi;
+    }
+
+    public AsyncIterable<SearchItem> search(String name) {
+        return
+        map(                     // AsyncIterable<SearchItem>
+            this::parseSearchItemDto,
+            flatMap(             // AsyncIterable<SearchItemDto>
+                movs -> of(movs),
+                takeWhile(       // AsyncIterable<SearchItemDto[]>
+                    movs -> movs.length != 0,
+                    mapAsync(    // AsyncIterable<SearchItemDto[]>
+                        page -> movWebApi.search(name, page),
+                        iterate( // AsyncIterable<Integer>
+                                0,
+                                prev -> ++prev)
+                        )
+                          )
+                    )
+            );
+    }
+
+    /**
+     * Publishes the same items as search(name), fetching each page only
+     * when the subscriber demands more items than those already delivered.
+     */
+    public Flow.Publisher<SearchItem> searchPublisher(String name) {
+        return new PagedPublisher<>(page -> {
+            CompletableFuture<SearchItemDto[]> dtos = movWebApi.search(name, page);
+            CompletableFuture<SearchItem[]> items = dtos.thenApply(this::parseSearchItemDtos);
+            items.whenComplete((__, err) -> {
+                if(items.isCancelled()) dtos.cancel(true);
+            });
+            return items;
+        });
+    }
+
+    private SearchItem[] parseSearchItemDtos(SearchItemDto[] dtos) {
+        SearchItem[] items = new SearchItem[dtos.length];
+        for (int i = 0; i < dtos.length; i++) items[i] = parseSearchItemDto(dtos[i]);
+        return items;
+    }
+
+    private SearchItem parseSearchItemDto(SearchItemDto dto) {
+        return new SearchItem(
+                dto.getId(),
+                dto.getTitle(),
+                dto.getReleaseDate(),
+                dto.getVoteAverage(),
+                () -> getMovie(dto.getId()));
+    }
+
+    public CompletableFuture<Movie> getMovie(int movId) {
+        return computeIfAbsent(movies, movId, id -> movWebApi
+                .getMovie(id)
+                .thenApply(mov -> new Movie(
+                        mov.getId(),
+                        mov.getOriginalTitle(),
+                        mov.getTagline(),
+                        mov.getOverview(),
+                        mov.getVoteAverage(),
+                        mov.getReleaseDate(),
+                        () -> this.getMovieCast(id))));
+    }
+
+    public CompletableFuture<List<CastItem>> getMovieCast(int movId) {
+        return computeIfAbsent(cast, movId, id -> movWebApi
+                .getMovieCast(id)
+                .thenApply(dtos -> Queries.toList(Queries.map(this::parseCastItemDto, Queries.of(dtos)))));
+    }
+
+    private CastItem parseCastItemDto(CastItemDto dto) {
+        return new CastItem(
+                dto.getId(),
+                dto.getMovieId(),
+                dto.getCharacter(),
+                dto.getName(),
+                () -> getActor(dto.getId(), dto.getName())
+        );
+    }
+
+    public CompletableFuture<Actor> getActor(int actorId, String name) {
+        return computeIfAbsent(actors, actorId, id -> movWebApi
+                .getPerson(id)
+                .thenApply(person -> new Actor(
+                        person.getId(),
+                        person.getName(),
+                        person.getPlace_of_birth(),
+                        person.getBiography(),
+                        () -> getActorCreditsCast(id))));
+    }
+
+    public CompletableFuture<List<SearchItem>> getActorCreditsCast(int actorId) {
+        return movWebApi
+                .getPersonCreditsCast(actorId)
+                .thenApply(dtos -> Queries.toList(Queries.map(this::parseSearchItemDto, Queries.of(dtos))));
+    }
+
+    /**
+     * Stores a new promise before starting the fetch, so that any concurrent
+     * request for the same id gets that promise instead of issuing another fetch.
+     */
+    private static <T> CompletableFuture<T> computeIfAbsent(
+            ConcurrentMap<Integer, CompletableFuture<T>> cache,
+            int id,
+            IntFunction<CompletableFuture<T>> loader)
+    {
+        CompletableFuture<T> promise = new CompletableFuture<>();
+        CompletableFuture<T> prev = cache.putIfAbsent(id, promise);
+        if(prev != null) return prev;
+        try {
+            loader.apply(id).whenComplete((val, err) -> {
+                if(err == null) promise.complete(val);
+                else {
+                    cache.remove(id, promise);
+                    promise.completeExceptionally(err);
+                }
+            });
+        } catch (RuntimeException err) {
+            cache.remove(id, promise);
+            promise.completeExceptionally(err);
+        }
+        return promise;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movasync;
+
+import com.google.gson.Gson;
+import movlazy.dto.CastDto;
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.dto.SearchDto;
+import movlazy.dto.SearchItemDto;
+import util.IAsyncRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Non-blocking counterpart of {@link movlazy.MovWebApi}.
+ *
+ * Responses arrive on the I/O threads of the IAsyncRequest and
+ * are parsed on the parser Executor, so I/O threads are never
+ * busy with JSON decoding.
+ */
+public class AsyncMovWebApi {
+    /**
+     * Constants
+     *
+     * To format messages URLs use {@link java.text.MessageFormat#format(String, Object...)} method.
+     */
+    private static final String MOVIE_DB_HOST = "https://api.themoviedb.org/3/";
+    private static final String MOVIE_DB_SEARCH = "search/movie?api_key={0}&query={1}&page={2}";
+    private static final String MOVIE_DB_MOVIE = "movie/{1}?api_key={0}";
+    private static final String MOVIE_DB_MOVIE_CREDITS = "movie/{1}/credits?api_key={0}";
+    private static final String MOVIE_DB_PERSON = "person/{1}?api_key={0}";
+    private static final String MOVIE_DB_PERSON_CREDITS = "person/{1}/movie_credits?api_key={0}";
+    private static String MOVIE_DB_TOKEN;
+
+    private final IAsyncRequest req;
+    private final Executor parser;
+    private final Gson gson = new Gson();
+
+    static {
+        try{
+            URL keyFile= ClassLoader.getSystemResource("movies-key.txt");
+            if(keyFile==null){
+                throw  new IllegalStateException("NO KEY FOUND");
+
+            }else {
+                InputStream keyStream = keyFile.openStream();
+                try(BufferedReader reader = new BufferedReader(new InputStreamReader(keyStream))){
+                    MOVIE_DB_TOKEN = reader.readLine();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /*
+     * Constructors
+     */
+    public AsyncMovWebApi(IAsyncRequest req) {
+        this(req, ForkJoinPool.commonPool());
+    }
+
+    public AsyncMovWebApi(IAsyncRequest req, Executor parser) {
+        this.req = req;
+        this.parser = parser;
+    }
+
+    /**
+     * E.g. https://api.themoviedb.org/3/search/movie?api_key=9b2f22e97ee512a9d3224d4aa0d8bd39&query=war+games
+     */
+    public CompletableFuture<SearchItemDto[]> search(String title, int page) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_SEARCH, MOVIE_DB_TOKEN,
+                title.replaceAll(" ", "+"), Long.toString(page));
+        return request(url, SearchDto.class).thenApply(SearchDto::getResults);
+    }
+
+    /**
+     * E.g. https://api.themoviedb.org/3/movie/860?api_key=9b2f22e97ee512a9d3224d4aa0d8bd39
+     */
+    public CompletableFuture<MovieDto> getMovie(int id) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_MOVIE, MOVIE_DB_TOKEN, Long.toString(id));
+        return request(url, MovieDto.class);
+    }
+
+    /**
+     * E.g. https://api.themoviedb.org/3/movie/860/credits?api_key=9b2f22e97ee512a9d3224d4aa0d8bd39
+     */
+    public CompletableFuture<CastItemDto[]> getMovieCast(int movieId) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_MOVIE_CREDITS, MOVIE_DB_TOKEN, Long.toString(movieId));
+        return request(url, CastDto.class).thenApply(CastDto::getCast);
+    }
+
+    /**
+     * E.g. https://api.themoviedb.org/3/person/4756?api_key=9b2f22e97ee512a9d3224d4aa0d8bd39
+     */
+    public CompletableFuture<PersonDto> getPerson(int personId) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_PERSON, MOVIE_DB_TOKEN, Long.toString(personId));
+        return request(url, PersonDto.class);
+    }
+
+    /**
+     * E.g. https://api.themoviedb.org/3/person/4756/movie_credits?api_key=9b2f22e97ee512a9d3224d4aa0d8bd39
+     */
+    public CompletableFuture<SearchItemDto[]> getPersonCreditsCast(int personId) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_PERSON_CREDITS, MOVIE_DB_TOKEN, Long.toString(personId));
+        return request(url, SearchDto.class).thenApply(SearchDto::getCast);
+    }
+
+    /**
+     * Parses the body on the parser Executor, rather than on the thread
+     * completing the request. Cancelling the returned future also
+     * cancels the pending request.
+     */
+    private <T> CompletableFuture<T> request(String url, Class<T> klass) {
+        CompletableFuture<InputStream> body = req.getBody(url);
+        CompletableFuture<T> dto = body.thenApplyAsync(in -> parse(in, klass), parser);
+        dto.whenComplete((__, err) -> {
+            if(dto.isCancelled()) body.cancel(true);
+        });
+        return dto;
+    }
+
+    private <T> T parse(InputStream in, Class<T> klass) {
+        try(Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, klass);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movasync.model;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public class Actor {
+    private final int id;
+    private final String name;
+    private final Supplier<CompletableFuture<List<SearchItem>>> movies;
+    private final String placeOfBirth;
+    private final String biography;
+
+    public Actor(
+            int id,
+            String name,
+            String placeOfBirth,
+            String biography,
+            Supplier<CompletableFuture<List<SearchItem>>> movies)
+    {
+        this.id = id;
+        this.name = name;
+        this.movies = movies;
+        this.placeOfBirth = placeOfBirth;
+        this.biography = biography;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPlaceOfBirth() {
+        return placeOfBirth;
+    }
+
+    public String getBiography() {
+        return biography;
+    }
+
+    public CompletableFuture<List<SearchItem>> getMovies() {
+        return movies.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Actor{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", movies=" + movies +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movasync.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public class CastItem {
+    private final int id;
+    private final int movieId;
+    private final String character;
+    private final String name;
+    private final Supplier<CompletableFuture<Actor>> actor;
+
+    public CastItem(int id, int movieId, String character, String name, Supplier<CompletableFuture<Actor>> actor) {
+        this.id = id;
+        this.movieId = movieId;
+        this.character = character;
+        this.name = name;
+        this.actor = actor;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCharacter() {
+        return character;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public CompletableFuture<Actor> getActor() {
+        return actor.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CastItem{" +
+                "id=" + id +
+                ", movieId=" + movieId +
+                ", character='" + character + '\'' +
+                ", name='" + name + '\'' +
+                ", actor=" + actor +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movasync.model;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public class Movie {
+    private final int id;
+    private final String original_title;
+    private final String tagline;
+    private final String overview;
+    private final double vote_average;
+    private final String release_date;
+    private final Supplier<CompletableFuture<List<CastItem>>> cast;
+
+    public Movie(
+            int id,
+            String original_title,
+            String tagline,
+            String overview,
+            double vote_average,
+            String release_date,
+            Supplier<CompletableFuture<List<CastItem>>> cast)
+    {
+        this.id = id;
+        this.original_title = original_title;
+        this.tagline = tagline;
+        this.overview = overview;
+        this.vote_average = vote_average;
+        this.release_date = release_date;
+        this.cast = cast;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getOriginalTitle() {
+        return original_title;
+    }
+
+    public String getTagline() {
+        return tagline;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+
+    public double getVoteAverage() {
+        return vote_average;
+    }
+
+    public String getReleaseDate() {
+        return release_date;
+    }
+
+    public CompletableFuture<List<CastItem>> getCast() {
+        return cast.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Movie{" +
+                "id=" + id +
+                ", original_title='" + original_title + '\'' +
+                ", tagline='" + tagline + '\'' +
+                ", overview='" + overview + '\'' +
+                ", vote_average=" + vote_average +
+                ", release_date='" + release_date + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of {@link java.util.Iterator}.
+ *
+ * next() returns a future of the next element, which completes with an
+ * empty Box when the sequence is over. A caller must wait for the future
+ * of the previous next() before calling next() again.
+ */
+public interface AsyncIterator<T> {
+
+    CompletableFuture<Box<T>> next();
+
+    /**
+     * Stops the iteration, releasing any pending work of this iterator
+     * and of its source. Called on early termination, e.g. by takeWhile or limit.
+     */
+    default void cancel() { }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util;
+
+import util.iterator.AsyncArrayIterator;
+import util.iterator.AsyncConcurrentFlatMapIterator;
+import util.iterator.AsyncFilterIterator;
+import util.iterator.AsyncFlatMapIterator;
+import util.iterator.AsyncIterate;
+import util.iterator.AsyncLimiter;
+import util.iterator.AsyncMapIterator;
+import util.iterator.AsyncTakeWhileIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Asynchronous counterpart of {@link Queries}, over {@link AsyncIterable}.
+ *
+ * Intermediate operations are lazy, as in Queries. Terminal operations
+ * return a CompletableFuture and cancelling it stops the iteration.
+ */
+public class AsyncQueries {
+
+    /**
+     * Returns a new AsyncIterable whose elements are the specified values.
+     */
+    @SafeVarargs
+    public static <T> AsyncIterable<T> of(T...values) {
+        // Copied one by one, so the varargs array never escapes
+        Object[] items = new Object[values.length];
+        for (int i = 0; i < items.length; i++) items[i] = values[i];
+        return () -> new AsyncArrayIterator<>(items);
+    }
+
+    /**
+     * Returns an infinite sequence produced by iterative application
+     * of a function op to an initial element seed, producing a
+     * new AsyncIterable consisting of op(seed), op(op(seed)), etc.
+     */
+    public static <T> AsyncIterable<T> iterate(T seed, UnaryOperator<T> op) {
+        return () -> new AsyncIterate<>(seed, op);
+    }
+
+    /**
+     * Returns a new AsyncIterable consisting of the results of
+     * applying the given function mapper to the elements of src.
+     */
+    public static <T, R> AsyncIterable<R> map(
+            Function<T, R> mapper,
+            AsyncIterable<T> src) {
+        return mapAsync(item -> completedFuture(mapper.apply(item)), src);
+    }
+
+    /**
+     * Returns a new AsyncIterable consisting of the results of the
+     * futures returned by mapper for each element of src.
+     * Each future is awaited before asking src for the next element.
+     */
+    public static <T, R> AsyncIterable<R> mapAsync(
+            Function<T, CompletableFuture<R>> mapper,
+            AsyncIterable<T> src) {
+        return () -> new AsyncMapIterator<>(src.iterator(), mapper);
+    }
+
+    /**
+     * Returns a new AsyncIterable consisting of the elements of
+     * src that match the given predicate.
+     */
+    public static <T> AsyncIterable<T> filter(
+            Predicate<T> p,
+            AsyncIterable<T> src) {
+        return () -> new AsyncFilterIterator<>(src.iterator(), p);
+    }
+
+    /**
+     * Returns a new AsyncIterable consisting of the longest prefix of elements
+     * taken from src that match the given predicate. The iteration of src
+     * is cancelled on the first element that does not match.
+     */
+    public static <T> AsyncIterable<T> takeWhile(
+            Predicate<T> p,
+            AsyncIterable<T> src) {
+        return () -> new AsyncTakeWhileIterator<>(src.iterator(), p);
+    }
+
+    /**
+     * Returns a new AsyncIterable consisting of the elements of src,
+     * truncated to be no longer than maxSize in length. The iteration
+     * of src is cancelled once maxSize elements have been taken.
+     */
+    public static <T> AsyncIterable<T> limit(AsyncIterable<T> src, int maxSize) {
+        return () -> new AsyncLimiter<>(src.iterator(), maxSize);
+    }
+
+    /**
+     * Returns a new AsyncIterable consisting of the results of replacing each
+     * element of src with the contents of the AsyncIterable produced by mapper.
+     */
+    public static <T, R> AsyncIterable<R> flatMap(
+            Function<T, AsyncIterable<R>> mapper,
+            AsyncIterable<T> src) {
+        return () -> new AsyncFlatMapIterator<>(src.iterator(), mapper);
+    }
+
+    /**
+     * Same as flatMap(mapper, src), but collects up to maxConcurrency inner
+     * sequences at the same time. Elements keep the order of src.
+     */
+    public static <T, R> AsyncIterable<R> flatMap(
+            Function<T, AsyncIterable<R>> mapper,
+            AsyncIterable<T> src,
+            int maxConcurrency) {
+        return () -> new AsyncConcurrentFlatMapIterator<>(src.iterator(), mapper, maxConcurrency);
+    }
+
+    /**
+     * Performs a reduction on the elements of src, using an associative
+     * accumulation function acc, and returns a future of the reduced value.
+     */
+    public static <T, R> CompletableFuture<R> reduce(
+            AsyncIterable<T> src,
+            R seed,
+            BiFunction<R, T, R> acc) {
+        AsyncIterator<T> iter = src.iterator();
+        CompletableFuture<R> res = new CompletableFuture<>();
+        res.whenComplete((__, err) -> {
+            if(res.isCancelled()) iter.cancel();
+        });
+        reduce(iter, seed, acc, res);
+        return res;
+    }
+
+    /**
+     * Loops while futures are already completed, to keep the stack flat.
+     */
+    private static <T, R> void reduce(
+            AsyncIterator<T> iter,
+            R seed,
+            BiFunction<R, T, R> acc,
+            CompletableFuture<R> res)
+    {
+        try {
+            while(!res.isDone()) {
+                CompletableFuture<Box<T>> curr = iter.next();
+                if(!curr.isDone()) {
+                    final R prev = seed;
+                    curr.whenComplete((item, err) -> {
+                        if(err != null) res.completeExceptionally(err);
+                        else if(!item.isPresent()) res.complete(prev);
+                        else {
+                            try {
+                                reduce(iter, acc.apply(prev, item.getItem()), acc, res);
+                            } catch (RuntimeException e) {
+                                res.completeExceptionally(e);
+                            }
+                        }
+                    });
+                    return;
+                }
+                Box<T> item = curr.join();
+                if(!item.isPresent()) res.complete(seed);
+                else seed = acc.apply(seed, item.getItem());
+            }
+        } catch (RuntimeException err) {
+            res.completeExceptionally(err);
+        }
+    }
+
+    /**
+     * Performs an action for each element of src.
+     */
+    public static <T> CompletableFuture<Void> forEach(
+            AsyncIterable<T> src,
+            Consumer<T> cons) {
+        return reduce(src, null, (Void __, T item) -> {
+            cons.accept(item);
+            return null;
+        });
+    }
+
+    /**
+     * Returns a future of the count of elements in src.
+     */
+    public static <T> CompletableFuture<Integer> count(AsyncIterable<T> src) {
+        return reduce(src, 0, (n, item) -> n + 1);
+    }
+
+    /**
+     * Returns a future of a list containing the elements of src.
+     */
+    public static <T> CompletableFuture<List<T>> toList(AsyncIterable<T> src) {
+        return reduce(src, new ArrayList<>(), (res, item) -> {
+            res.add(item);
+            return res;
+        });
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.asynchttpclient.Dsl.asyncHttpClient;
+import static org.asynchttpclient.Dsl.config;
+
+/**
+ * Non-blocking IAsyncRequest backed by a Netty based AsyncHttpClient.
+ * Requests are multiplexed on a few I/O threads, so thousands of them
+ * may be in flight at the same time. The returned futures complete on
+ * those I/O threads, thus consumers should not do heavy work on them.
+ */
+public class HttpAsyncRequest implements IAsyncRequest, AutoCloseable {
+
+    private final AsyncHttpClient client;
+
+    public HttpAsyncRequest() {
+        this(Runtime.getRuntime().availableProcessors(), -1);
+    }
+
+    /**
+     * @param ioThreads number of Netty I/O threads.
+     * @param maxConnections maximum number of open connections, or -1 for no limit.
+     */
+    public HttpAsyncRequest(int ioThreads, int maxConnections) {
+        this.client = asyncHttpClient(config()
+                .setIoThreadsCount(ioThreads)
+                .setMaxConnections(maxConnections)
+                .setKeepAlive(true));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getBody(String path) {
+        ListenableFuture<Response> req = client.prepareGet(path).execute();
+        CompletableFuture<InputStream> body = req
+                .toCompletableFuture()
+                .thenApply(resp -> {
+                    if(resp.getStatusCode() >= 400)
+                        throw new UncheckedIOException(new IOException(
+                                "HTTP " + resp.getStatusCode() + " for " + path));
+                    return resp.getResponseBodyAsStream();
+                });
+        body.whenComplete((__, err) -> {
+            if(body.isCancelled()) req.cancel(true);
+        });
+        return body;
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
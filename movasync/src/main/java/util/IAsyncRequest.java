@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous counterpart of {@link IRequest}.
+ * The returned future completes with the response body once it
+ * has been fully received, without blocking the caller.
+ */
+public interface IAsyncRequest {
+    CompletableFuture<InputStream> getBody(String path);
+
+    public default IAsyncRequest compose(Consumer<String> cons) {
+        return path -> {
+            cons.accept(path);
+            return getBody(path);
+        };
+    }
+
+    /**
+     * Adapts a blocking IRequest, running each request on the given executor.
+     * Useful for tests with {@link FileRequest}.
+     */
+    public static IAsyncRequest of(IRequest req, Executor executor) {
+        return path -> CompletableFuture.supplyAsync(() -> req.getBody(path), executor);
+    }
+}
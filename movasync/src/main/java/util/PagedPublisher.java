@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Publishes the elements of a paged source, such as the TMDb search, honouring
+ * the demand signalled by each subscriber through request(n).
+ *
+ * A page is only requested when there is outstanding demand and every element
+ * of the previous page was already delivered, so at most one page per
+ * subscription is held in memory. Paging stops at the first empty page.
+ * Cancelling the subscription also cancels the pending page request.
+ */
+public class PagedPublisher<T> implements Flow.Publisher<T> {
+
+    private final IntFunction<CompletableFuture<T[]>> pages;
+
+    /**
+     * @param pages returns the future of the elements of the given page, starting on page 1.
+     */
+    public PagedPublisher(IntFunction<CompletableFuture<T[]>> pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        PageSubscription<T> subscription = new PageSubscription<>(pages, subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    static class PageSubscription<T> implements Flow.Subscription {
+        private final IntFunction<CompletableFuture<T[]>> pages;
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<T[]> pending;
+        private volatile Throwable error;
+        private volatile boolean lastPage;
+        private Iterator<T> page = Collections.emptyIterator();
+        private int nextPage = 1;
+
+        PageSubscription(IntFunction<CompletableFuture<T[]>> pages, Flow.Subscriber<? super T> subscriber) {
+            this.pages = pages;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                error = new IllegalArgumentException("request must be positive, but was " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<T[]> curr = pending;
+            if(curr != null) curr.cancel(true);
+        }
+
+        /**
+         * Serializes signals to the subscriber: only one thread at a time runs
+         * the loop, and it loops again if another thread asked to drain meanwhile.
+         */
+        private void drain() {
+            if(wip.getAndIncrement() != 0) return;
+            do {
+                if(cancelled) return;
+                if(error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                    return;
+                }
+                while(demand.get() > 0 && page.hasNext() && !cancelled) {
+                    subscriber.onNext(page.next());
+                    demand.decrementAndGet();
+                }
+                if(!page.hasNext() && pending == null && !cancelled) {
+                    if(lastPage) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if(demand.get() > 0) fetch();
+                }
+            } while(wip.decrementAndGet() != 0);
+        }
+
+        private void fetch() {
+            CompletableFuture<T[]> curr = pending = pages.apply(nextPage++);
+            curr.whenComplete((items, err) -> {
+                if(err != null) error = err;
+                else if(items.length == 0) lastPage = true;
+                else page = asList(items).iterator();
+                pending = null;
+                drain();
+            });
+        }
+    }
+}
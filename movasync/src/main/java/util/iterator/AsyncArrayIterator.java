@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Iterates values, which must all be of type T.
+ */
+public class AsyncArrayIterator<T> implements AsyncIterator<T> {
+    private final Object[] values;
+    private int index;
+
+    public AsyncArrayIterator(Object[] values) {
+        this.values = values;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Box<T>> next() {
+        return index < values.length
+                ? completedFuture(Box.of((T) values[index++]))
+                : completedFuture(Box.empty());
+    }
+
+    @Override
+    public void cancel() {
+        index = values.length;
+    }
+}
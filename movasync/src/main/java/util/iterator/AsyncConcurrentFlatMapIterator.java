@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterable;
+import util.AsyncIterator;
+import util.AsyncQueries;
+import util.Box;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Like {@link AsyncFlatMapIterator}, but keeps up to maxConcurrency inner
+ * sequences being collected at the same time, ahead of the consumer,
+ * including the one the consumer is waiting for.
+ * Elements are still yielded in the order of the source.
+ */
+public class AsyncConcurrentFlatMapIterator<T, R> implements AsyncIterator<R> {
+    private final AsyncIterator<T> src;
+    private final Function<T, AsyncIterable<R>> mapper;
+    private final int maxConcurrency;
+    private final Deque<CompletableFuture<List<R>>> window = new ArrayDeque<>();
+    private CompletableFuture<Void> pulling;   // signals completion of a pending pull from src
+    private boolean srcDone;
+    private Iterator<R> curr = Collections.emptyIterator();
+
+    public AsyncConcurrentFlatMapIterator(AsyncIterator<T> src, Function<T, AsyncIterable<R>> mapper, int maxConcurrency) {
+        if(maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be positive");
+        this.src = src;
+        this.mapper = mapper;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Box<R>> next() {
+        if(curr.hasNext()) return completedFuture(Box.of(curr.next()));
+        fill();
+        CompletableFuture<List<R>> head = window.pollFirst();
+        if(head != null) {
+            return head.thenCompose(items -> {
+                synchronized (this) {
+                    curr = items.iterator();
+                    fill();
+                }
+                return next();
+            });
+        }
+        if(srcDone) return completedFuture(Box.empty());
+        return pulling.thenCompose(__ -> next());
+    }
+
+    /**
+     * Pulls from src, one at a time, while there is room in the window.
+     * Must be called holding the lock.
+     */
+    private void fill() {
+        while(!srcDone && pulling == null && window.size() < maxConcurrency) {
+            CompletableFuture<Box<T>> item = src.next();
+            if(item.isDone() && !item.isCompletedExceptionally()) {
+                onPulled(item.join());
+            } else {
+                CompletableFuture<Void> ready = pulling = new CompletableFuture<>();
+                item.whenComplete((val, err) -> {
+                    try {
+                        synchronized (this) {
+                            pulling = null;
+                            if(err != null) onFailed(err);
+                            else onPulled(val);
+                            fill();
+                        }
+                    } finally {
+                        // The consumer waits on ready, whatever happened
+                        ready.complete(null);
+                    }
+                });
+            }
+        }
+    }
+
+    private void onPulled(Box<T> item) {
+        if(!item.isPresent()) {
+            srcDone = true;
+            return;
+        }
+        try {
+            window.addLast(AsyncQueries.toList(mapper.apply(item.getItem())));
+        } catch (RuntimeException err) {
+            onFailed(err);
+        }
+    }
+
+    /**
+     * Yields err after the items already in the window, and nothing else.
+     */
+    private void onFailed(Throwable err) {
+        CompletableFuture<List<R>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(err);
+        window.addLast(failed);
+        srcDone = true;
+    }
+
+    @Override
+    public synchronized void cancel() {
+        srcDone = true;
+        curr = Collections.emptyIterator();
+        for (CompletableFuture<List<R>> items : window) items.cancel(true);
+        window.clear();
+        src.cancel();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Skips the elements that do not match p. Already completed elements are
+ * consumed in a loop, rather than in nested callbacks, to keep the stack flat.
+ */
+public class AsyncFilterIterator<T> implements AsyncIterator<T> {
+    private final AsyncIterator<T> src;
+    private final Predicate<T> p;
+
+    public AsyncFilterIterator(AsyncIterator<T> src, Predicate<T> p) {
+        this.src = src;
+        this.p = p;
+    }
+
+    @Override
+    public CompletableFuture<Box<T>> next() {
+        CompletableFuture<Box<T>> res = new CompletableFuture<>();
+        advance(res);
+        return res;
+    }
+
+    private void advance(CompletableFuture<Box<T>> res) {
+        while(true) {
+            CompletableFuture<Box<T>> curr = src.next();
+            if(!curr.isDone()) {
+                curr.whenComplete((item, err) -> {
+                    try {
+                        if(err != null) res.completeExceptionally(err);
+                        else if(!item.isPresent() || p.test(item.getItem())) res.complete(item);
+                        else advance(res);
+                    } catch (RuntimeException e) {
+                        res.completeExceptionally(e);
+                    }
+                });
+                return;
+            }
+            Box<T> item;
+            try {
+                item = curr.join();
+                if(!item.isPresent() || p.test(item.getItem())) {
+                    res.complete(item);
+                    return;
+                }
+            } catch (RuntimeException err) {
+                res.completeExceptionally(err);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        src.cancel();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterable;
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Concatenates, one after the other, the sequences produced by mapper.
+ */
+public class AsyncFlatMapIterator<T, R> implements AsyncIterator<R> {
+    private final AsyncIterator<T> src;
+    private final Function<T, AsyncIterable<R>> mapper;
+    private volatile AsyncIterator<R> curr;
+    private volatile boolean cancelled;
+
+    public AsyncFlatMapIterator(AsyncIterator<T> src, Function<T, AsyncIterable<R>> mapper) {
+        this.src = src;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public CompletableFuture<Box<R>> next() {
+        CompletableFuture<Box<R>> res = new CompletableFuture<>();
+        advance(res);
+        return res;
+    }
+
+    /**
+     * Loops while futures are already completed, to keep the stack flat
+     * across empty inner sequences.
+     */
+    private void advance(CompletableFuture<Box<R>> res) {
+        while(true) {
+            if(cancelled) {
+                res.complete(Box.empty());
+                return;
+            }
+            boolean inner = curr != null;
+            CompletableFuture<? extends Box<?>> step = inner ? curr.next() : src.next();
+            if(!step.isDone()) {
+                step.whenComplete((item, err) -> {
+                    try {
+                        if(err != null) res.completeExceptionally(err);
+                        else if(onItem(inner, item, res)) advance(res);
+                    } catch (RuntimeException e) {
+                        res.completeExceptionally(e);
+                    }
+                });
+                return;
+            }
+            try {
+                if(!onItem(inner, step.join(), res)) return;
+            } catch (RuntimeException err) {
+                res.completeExceptionally(err);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true when advance must go on.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean onItem(boolean inner, Box<?> item, CompletableFuture<Box<R>> res) {
+        if(inner) {
+            if(item.isPresent()) {
+                res.complete((Box<R>) item);
+                return false;
+            }
+            curr = null;
+            return true;
+        }
+        if(!item.isPresent()) {
+            res.complete(Box.empty());
+            return false;
+        }
+        curr = mapper.apply((T) item.getItem()).iterator();
+        return true;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        AsyncIterator<R> inner = curr;
+        if(inner != null) inner.cancel();
+        src.cancel();
+    }
+}
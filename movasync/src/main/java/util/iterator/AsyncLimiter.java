@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Cancels the source as soon as maxSize elements have been yielded.
+ */
+public class AsyncLimiter<T> implements AsyncIterator<T> {
+    private final AsyncIterator<T> src;
+    private int remaining;
+
+    public AsyncLimiter(AsyncIterator<T> src, int maxSize) {
+        this.src = src;
+        this.remaining = maxSize;
+        if(maxSize <= 0) src.cancel();
+    }
+
+    @Override
+    public CompletableFuture<Box<T>> next() {
+        if(remaining <= 0) return completedFuture(Box.empty());
+        if(--remaining == 0)
+            return src.next().whenComplete((__, err) -> src.cancel());
+        return src.next();
+    }
+
+    @Override
+    public void cancel() {
+        remaining = 0;
+        src.cancel();
+    }
+}
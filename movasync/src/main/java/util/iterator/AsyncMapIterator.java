@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Maps each element to a future of its result, which is awaited
+ * before completing next(). Cancelling also cancels the pending result.
+ */
+public class AsyncMapIterator<T, R> implements AsyncIterator<R> {
+    private final AsyncIterator<T> src;
+    private final Function<T, CompletableFuture<R>> mapper;
+    private volatile CompletableFuture<R> pending;
+    private volatile boolean cancelled;
+
+    public AsyncMapIterator(AsyncIterator<T> src, Function<T, CompletableFuture<R>> mapper) {
+        this.src = src;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public CompletableFuture<Box<R>> next() {
+        if(cancelled) return completedFuture(Box.empty());
+        return src.next().thenCompose(item -> {
+            if(!item.isPresent() || cancelled) return completedFuture(Box.<R>empty());
+            CompletableFuture<R> res = pending = mapper.apply(item.getItem());
+            return res.thenApply(Box::of);
+        });
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        CompletableFuture<R> res = pending;
+        if(res != null) res.cancel(true);
+        src.cancel();
+    }
+}
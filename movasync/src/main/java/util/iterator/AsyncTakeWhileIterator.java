@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.iterator;
+
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Cancels the source on the first element that does not match p.
+ */
+public class AsyncTakeWhileIterator<T> implements AsyncIterator<T> {
+    private final AsyncIterator<T> src;
+    private final Predicate<T> p;
+    private volatile boolean finished;
+
+    public AsyncTakeWhileIterator(AsyncIterator<T> src, Predicate<T> p) {
+        this.src = src;
+        this.p = p;
+    }
+
+    @Override
+    public CompletableFuture<Box<T>> next() {
+        if(finished) return completedFuture(Box.empty());
+        return src.next().thenApply(item -> {
+            if(item.isPresent() && p.test(item.getItem())) return item;
+            cancel();
+            return Box.empty();
+        });
+    }
+
+    @Override
+    public void cancel() {
+        finished = true;
+        src.cancel();
+    }
+}
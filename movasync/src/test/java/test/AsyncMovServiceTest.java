@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import movasync.AsyncMovService;
+import movasync.AsyncMovWebApi;
+import movasync.model.Actor;
+import movasync.model.Movie;
+import movasync.model.SearchItem;
+import org.junit.Test;
+import util.FileRequest;
+import util.IAsyncRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static util.AsyncQueries.toList;
+
+public class AsyncMovServiceTest {
+
+    @Test
+    public void testSearchThenDetailsThenCastThenActor() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger count = new AtomicInteger();
+        IAsyncRequest req = IAsyncRequest
+                .of(new FileRequest(), pool)
+                .compose(__ -> count.incrementAndGet());
+        AsyncMovService movapi = new AsyncMovService(new AsyncMovWebApi(req));
+
+        List<SearchItem> vs = toList(movapi.search("hulk")).join();
+        assertEquals(25, vs.size());
+        assertEquals(3, count.get());
+
+        SearchItem hulk = vs.stream()
+                .filter(m -> m.getTitle().equals("Shamelessly She-Hulk"))
+                .findFirst()
+                .get();
+        CompletableFuture<Actor> actor = hulk
+                .getDetails()
+                .thenCompose(Movie::getCast)
+                .thenCompose(cast -> cast.get(0).getActor());
+        assertEquals("Kierstyn Elrod", actor.join().getName());
+        assertEquals(6, count.get()); // movie + credits + person
+        pool.shutdown();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneFetch() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger count = new AtomicInteger();
+        IAsyncRequest req = IAsyncRequest
+                .of(new FileRequest(), pool)
+                .compose(__ -> count.incrementAndGet());
+        AsyncMovService movapi = new AsyncMovService(new AsyncMovWebApi(req));
+
+        CompletableFuture<Movie> m1 = movapi.getMovie(421831);
+        CompletableFuture<Movie> m2 = movapi.getMovie(421831);
+        assertSame(m1, m2);
+        assertSame(m1.join(), m2.join());
+        assertEquals(1, count.get());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import movasync.AsyncMovWebApi;
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.SearchItemDto;
+import org.junit.Test;
+import util.FileRequest;
+import util.IAsyncRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncMovWebApiTest {
+
+    @Test
+    public void testSearchPagesConcurrently() {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        AtomicInteger count = new AtomicInteger();
+        IAsyncRequest req = IAsyncRequest
+                .of(new FileRequest(), pool)
+                .compose(__ -> count.incrementAndGet());
+        AsyncMovWebApi movWebApi = new AsyncMovWebApi(req);
+
+        CompletableFuture<SearchItemDto[]> p1 = movWebApi.search("hulk", 1);
+        CompletableFuture<SearchItemDto[]> p2 = movWebApi.search("hulk", 2);
+        CompletableFuture<SearchItemDto[]> p3 = movWebApi.search("hulk", 3);
+        assertEquals(3, count.get()); // All in flight before any join
+        assertEquals(25, p1.join().length + p2.join().length + p3.join().length);
+        assertEquals("Hulk", p1.join()[0].getTitle());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testGetMovieAndCast() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AsyncMovWebApi movWebApi = new AsyncMovWebApi(IAsyncRequest.of(new FileRequest(), pool));
+
+        CompletableFuture<MovieDto> mov = movWebApi.getMovie(421831);
+        CompletableFuture<CastItemDto[]> cast = movWebApi.getMovieCast(421831);
+        assertEquals("Shamelessly She-Hulk", mov.join().getOriginalTitle());
+        assertEquals("Kierstyn Elrod", cast.join()[0].getName());
+        assertEquals("Shamelessly She-Hulk", movWebApi.getPersonCreditsCast(1696386).join()[0].getTitle());
+        pool.shutdown();
+    }
+}
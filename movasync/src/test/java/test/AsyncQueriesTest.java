@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import org.junit.Test;
+import util.AsyncIterable;
+import util.AsyncIterator;
+import util.Box;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static util.AsyncQueries.count;
+import static util.AsyncQueries.filter;
+import static util.AsyncQueries.flatMap;
+import static util.AsyncQueries.iterate;
+import static util.AsyncQueries.limit;
+import static util.AsyncQueries.mapAsync;
+import static util.AsyncQueries.of;
+import static util.AsyncQueries.reduce;
+import static util.AsyncQueries.takeWhile;
+import static util.AsyncQueries.toList;
+
+public class AsyncQueriesTest {
+
+    @Test
+    public void testIterate() {
+        AsyncIterable<Integer> nrs = takeWhile(n -> n < 8, iterate(0, n -> ++n));
+        assertEquals(asList(1, 2, 3, 4, 5, 6, 7), toList(nrs).join());
+    }
+
+    @Test
+    public void testFilterDoesNotOverflowTheStack() {
+        AsyncIterable<Integer> nrs = filter(n -> n % 100_000 == 0, takeWhile(n -> n <= 300_000, iterate(0, n -> ++n)));
+        assertEquals(asList(100_000, 200_000, 300_000), toList(nrs).join());
+    }
+
+    @Test
+    public void testFlatMapAndReduce() {
+        AsyncIterable<String> words = flatMap(line -> of(line.split(" ")), of("ola isel", "super mpd"));
+        assertEquals("olaiselsupermpd", reduce(words, "", (prev, curr) -> prev + curr).join());
+    }
+
+    @Test
+    public void testConcurrentFlatMapKeepsOrderAndBound() {
+        AtomicInteger inFlight = new AtomicInteger();
+        int[] maxInFlight = {0};
+        List<CompletableFuture<Integer>> pending = new ArrayList<>();
+        AsyncIterable<Integer> src = takeWhile(n -> n <= 6, iterate(0, n -> ++n));
+        AsyncIterable<Integer> res = flatMap(
+                n -> mapAsync(
+                        x -> {
+                            maxInFlight[0] = Math.max(maxInFlight[0], inFlight.incrementAndGet());
+                            CompletableFuture<Integer> f = new CompletableFuture<>();
+                            pending.add(f);
+                            return f;
+                        },
+                        of(n)),
+                src,
+                3);
+        CompletableFuture<List<Integer>> items = toList(res);
+        assertEquals(3, pending.size()); // Only 3 inner sequences started
+        for (int i = 0; i < 6; i++) {
+            inFlight.decrementAndGet();
+            pending.get(i).complete((i + 1) * 10);
+        }
+        assertEquals(asList(10, 20, 30, 40, 50, 60), items.join());
+        assertEquals(3, maxInFlight[0]);
+    }
+
+    @Test
+    public void testConcurrentFlatMapReportsMapperFailure() throws Exception {
+        AsyncIterable<Integer> src = mapAsync(
+                n -> CompletableFuture.supplyAsync(() -> n),
+                takeWhile(n -> n <= 3, iterate(0, n -> ++n)));
+        AsyncIterable<Integer> res = flatMap(
+                n -> {
+                    if(n == 2) throw new IllegalStateException("Bad item " + n);
+                    return of(n);
+                },
+                src,
+                2);
+        try {
+            toList(res).get(5, TimeUnit.SECONDS);
+            fail("Mapper failure should be reported");
+        } catch (ExecutionException e) {
+            assertEquals("Bad item 2", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Items 1 to 3, each completed 50 ms later on another thread.
+     */
+    private static AsyncIterable<Integer> delayed() {
+        return mapAsync(
+                n -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return n;
+                }),
+                takeWhile(n -> n <= 3, iterate(0, n -> ++n)));
+    }
+
+    private static void assertFailsWith(String message, AsyncIterable<?> src) throws Exception {
+        try {
+            toList(src).get(5, TimeUnit.SECONDS);
+            fail("Failure should be reported");
+        } catch (ExecutionException e) {
+            assertEquals(message, e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testFilterReportsPredicateFailureOfLaterItem() throws Exception {
+        assertFailsWith("Bad item 2", filter(
+                n -> {
+                    if(n == 2) throw new IllegalStateException("Bad item " + n);
+                    return true;
+                },
+                delayed()));
+    }
+
+    @Test
+    public void testFlatMapReportsMapperFailureOfLaterItem() throws Exception {
+        assertFailsWith("Bad item 2", flatMap(
+                n -> {
+                    if(n == 2) throw new IllegalStateException("Bad item " + n);
+                    return of(n);
+                },
+                delayed()));
+    }
+
+    @Test
+    public void testLimitCancelsSource() {
+        boolean[] cancelled = {false};
+        AsyncIterable<Integer> src = () -> new AsyncIterator<Integer>() {
+            int n = 0;
+            public CompletableFuture<Box<Integer>> next() {
+                return CompletableFuture.completedFuture(Box.of(n++));
+            }
+            public void cancel() {
+                cancelled[0] = true;
+            }
+        };
+        assertEquals(5, (int) count(limit(src, 5)).join());
+        assertTrue(cancelled[0]);
+    }
+}
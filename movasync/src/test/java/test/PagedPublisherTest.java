@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import org.junit.Test;
+import util.PagedPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PagedPublisherTest {
+
+    static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+        final List<Integer> items = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+
+        public void onSubscribe(Flow.Subscription subscription) { this.subscription = subscription; }
+        public void onNext(Integer item) { items.add(item); }
+        public void onError(Throwable throwable) { throw new AssertionError(throwable); }
+        public void onComplete() { completed = true; }
+    }
+
+    @Test
+    public void testPagesAreFetchedOnDemand() {
+        List<CompletableFuture<Integer[]>> requested = new ArrayList<>();
+        PagedPublisher<Integer> pub = new PagedPublisher<>(page -> {
+            CompletableFuture<Integer[]> items = new CompletableFuture<>();
+            requested.add(items);
+            return items;
+        });
+        RecordingSubscriber sub = new RecordingSubscriber();
+        pub.subscribe(sub);
+        assertEquals(0, requested.size()); // No demand yet
+
+        sub.subscription.request(2);
+        assertEquals(1, requested.size());
+        requested.get(0).complete(new Integer[]{1, 2, 3});
+        assertEquals(2, sub.items.size());
+        assertEquals(1, requested.size()); // Item 3 still buffered
+
+        sub.subscription.request(2);
+        assertEquals(2, requested.size());
+        requested.get(1).complete(new Integer[]{4, 5});
+        assertEquals(4, sub.items.size());
+
+        sub.subscription.cancel();
+        sub.subscription.request(10);
+        assertEquals(2, requested.size());
+        assertEquals(4, sub.items.size());
+    }
+
+    @Test
+    public void testCompletesOnEmptyPageAndCancelsPending() {
+        List<CompletableFuture<Integer[]>> requested = new ArrayList<>();
+        PagedPublisher<Integer> pub = new PagedPublisher<>(page -> {
+            CompletableFuture<Integer[]> items = page < 3
+                    ? CompletableFuture.completedFuture(new Integer[]{page})
+                    : new CompletableFuture<>();
+            requested.add(items);
+            return items;
+        });
+        RecordingSubscriber sub = new RecordingSubscriber();
+        pub.subscribe(sub);
+        sub.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, requested.size());
+        sub.subscription.cancel();
+        assertTrue(requested.get(2).isCancelled());
+
+        pub = new PagedPublisher<>(page -> CompletableFuture.completedFuture(
+                page < 3 ? new Integer[]{page} : new Integer[0]));
+        sub = new RecordingSubscriber();
+        pub.subscribe(sub);
+        sub.subscription.request(Long.MAX_VALUE);
+        assertEquals(2, sub.items.size());
+        assertTrue(sub.completed);
+    }
+}
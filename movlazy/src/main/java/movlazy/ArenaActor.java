@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.model.Actor;
+import movlazy.model.SearchItem;
+import util.arena.TextArena.Text;
+
+/**
+ * Actor whose biography is kept off-heap, in a TextArena,
+ * and decoded on each get.
+ */
+class ArenaActor extends Actor {
+    private final Text biography;
+
+    ArenaActor(int id, String name, String placeOfBirth, Text biography, Iterable<SearchItem> movies) {
+        super(id, name, placeOfBirth, null, movies);
+        this.biography = biography;
+    }
+
+    @Override
+    public String getBiography() {
+        return biography == null ? null : biography.get();
+    }
+}
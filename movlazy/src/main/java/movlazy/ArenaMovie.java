@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.model.CastItem;
+import movlazy.model.Movie;
+import util.arena.TextArena.Text;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Movie whose tagline and overview are kept off-heap, in a TextArena,
+ * and decoded on each get.
+ */
+class ArenaMovie extends Movie {
+    private final Text tagline;
+    private final Text overview;
+
+    ArenaMovie(
+            int id,
+            String original_title,
+            Text tagline,
+            Text overview,
+            double vote_average,
+            String release_date,
+            Supplier<List<CastItem>> cast)
+    {
+        super(id, original_title, null, null, vote_average, release_date, cast);
+        this.tagline = tagline;
+        this.overview = overview;
+    }
+
+    @Override
+    public String getTagline() {
+        return tagline == null ? null : tagline.get();
+    }
+
+    @Override
+    public String getOverview() {
+        return overview == null ? null : overview.get();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import movlazy.model.SearchItem;
+import util.PrefixTrie;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Suggests titles of the movies already seen by a MovService, on search
+ * results, filmographies and movie details, for the prefix typed so far.
+ *
+ * Titles are keyed by their normalized words, starting at each of the
+ * first WORDS words, so "hulk" completes both "Hulk" and "The Incredible
+ * Hulk". Suggestions are ranked by vote average. Answers come from a
+ * PrefixTrie, thus never wait for the MovService nor for the web api.
+ *
+ * Up to maxMovies movies are suggested: beyond that, the keys of the least
+ * recently seen ones are removed, so memory does not grow with all the
+ * traffic ever served.
+ */
+public class Autocomplete implements MovService.TitleListener {
+
+    private static final int WORDS = 4;
+    private static final int MAX_K = 10;
+    private static final int MAX_MOVIES = 100_000;
+    private static final Type SUGGESTIONS = new TypeToken<List<Suggestion>>() {}.getType();
+
+    private final PrefixTrie<Suggestion> trie = new PrefixTrie<>(MAX_K);
+    /**
+     * Titles put for each movie, from the least to the most recently seen.
+     */
+    private final LinkedHashMap<Integer, Set<String>> titlesById = new LinkedHashMap<>();
+    private final int maxMovies;
+    private final Gson gson = new Gson();
+
+    public Autocomplete(MovService movs) {
+        this(movs, MAX_MOVIES);
+    }
+
+    public Autocomplete(MovService movs, int maxMovies) {
+        this.maxMovies = maxMovies;
+        movs.addTitleListener(this);
+    }
+
+    @Override
+    public synchronized void onTitles(SearchItem item, String... titles) {
+        Suggestion sug = new Suggestion(item);
+        Set<String> seen = titlesById.remove(sug.id);
+        if(seen == null) seen = new LinkedHashSet<>();
+        titlesById.put(sug.id, seen);
+        seen.add(item.getTitle());
+        put(item.getTitle(), sug);
+        for (String title : titles) {
+            seen.add(title);
+            put(title, sug);
+        }
+        Iterator<Map.Entry<Integer, Set<String>>> eldest = titlesById.entrySet().iterator();
+        while(titlesById.size() > maxMovies) {
+            Map.Entry<Integer, Set<String>> movie = eldest.next();
+            for (String title : movie.getValue())
+                for (String key : keys(title)) trie.remove(key, movie.getKey());
+            eldest.remove();
+        }
+    }
+
+    private void put(String title, Suggestion sug) {
+        for (String key : keys(title)) trie.put(key, sug.id, sug.voteAverage, sug);
+    }
+
+    /**
+     * Keys of title, starting at each of its first WORDS words.
+     */
+    private static List<String> keys(String title) {
+        List<String> words = TitleIndex.tokenize(title);
+        List<String> keys = new ArrayList<>(WORDS);
+        for (int i = 0; i < words.size() && i < WORDS; i++)
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        return keys;
+    }
+
+    /**
+     * Returns up to k suggestions for prefix, best voted first.
+     */
+    public List<Suggestion> complete(String prefix, int k) {
+        String key = String.join(" ", TitleIndex.tokenize(prefix));
+        if(key.isEmpty()) return Collections.emptyList();
+        List<Suggestion> res = trie.complete(key);
+        return res.size() > k ? res.subList(0, k) : res;
+    }
+
+    /**
+     * Suggestions for q as a JSON array, e.g. for /autocomplete?q=incredible+hu&k=5.
+     * Up to k of them, clamped to MAX_K, or MAX_K if k is missing or not a number.
+     */
+    public String toJson(String q, String k) {
+        List<Suggestion> res = q == null ? Collections.emptyList() : complete(q, limit(k));
+        return gson.toJson(res, SUGGESTIONS);
+    }
+
+    private static int limit(String k) {
+        if(k == null) return MAX_K;
+        try {
+            return Math.max(0, Math.min(MAX_K, Integer.parseInt(k.trim())));
+        } catch (NumberFormatException e) {
+            return MAX_K;
+        }
+    }
+
+    public static class Suggestion {
+        private final int id;
+        private final String title;
+        private final String releaseDate;
+        private final double voteAverage;
+
+        Suggestion(SearchItem item) {
+            this.id = item.getId();
+            this.title = item.getTitle();
+            this.releaseDate = item.getReleaseDate();
+            this.voteAverage = item.getVoteAverage();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getReleaseDate() {
+            return releaseDate;
+        }
+
+        public double getVoteAverage() {
+            return voteAverage;
+        }
+    }
+}
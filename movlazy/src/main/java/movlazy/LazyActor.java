@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.model.Actor;
+import movlazy.model.SearchItem;
+import util.json.LazyFields;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Actor decoded from raw JSON, whose place of birth and biography
+ * are kept as bytes until first read. The place of birth is then
+ * interned, as it often repeats among actors.
+ */
+class LazyActor extends Actor {
+    static final String[] FIELDS = {"id", "name", "place_of_birth", "biography"};
+    static final int EAGER = 2;
+    private static final int PLACE_OF_BIRTH = 0, BIOGRAPHY = 1;
+
+    final LazyFields fields;
+    private final UnaryOperator<String> intern;
+
+    LazyActor(int id, String name, LazyFields fields, UnaryOperator<String> intern, Iterable<SearchItem> movies) {
+        super(id, name, null, null, movies);
+        this.fields = fields;
+        this.intern = intern;
+    }
+
+    @Override
+    public String getPlaceOfBirth() {
+        return fields.getString(PLACE_OF_BIRTH, intern);
+    }
+
+    @Override
+    public String getBiography() {
+        return fields.getString(BIOGRAPHY);
+    }
+}
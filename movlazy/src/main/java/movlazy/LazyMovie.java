@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.model.CastItem;
+import movlazy.model.Movie;
+import util.json.LazyFields;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Movie decoded from raw JSON, whose tagline, overview and release date
+ * are kept as bytes until first read. The release date is then interned,
+ * as it often repeats among movies.
+ */
+class LazyMovie extends Movie {
+    static final String[] FIELDS = {"id", "original_title", "vote_average", "tagline", "overview", "release_date"};
+    static final int EAGER = 3;
+    private static final int TAGLINE = 0, OVERVIEW = 1, RELEASE_DATE = 2;
+
+    final LazyFields fields;
+    private final UnaryOperator<String> intern;
+
+    LazyMovie(int id, String original_title, double vote_average, LazyFields fields,
+              UnaryOperator<String> intern, Supplier<List<CastItem>> cast) {
+        super(id, original_title, null, null, vote_average, null, cast);
+        this.fields = fields;
+        this.intern = intern;
+    }
+
+    @Override
+    public String getTagline() {
+        return fields.getString(TAGLINE);
+    }
+
+    @Override
+    public String getOverview() {
+        return fields.getString(OVERVIEW);
+    }
+
+    @Override
+    public String getReleaseDate() {
+        return fields.getString(RELEASE_DATE, intern);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.columnar.SearchColumns;
+import movlazy.model.CastItem;
+import movlazy.model.SearchItem;
+import util.IntSets;
+import util.ParallelQueries;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import static util.Queries.toList;
+
+/**
+ * Group-by, count and average queries over the movies and filmographies
+ * of a MovService, e.g. over movs.getMovies(ids). Inputs missing from the
+ * caches are fetched concurrently by the batch loads of MovService, and
+ * then reduced in parallel on a ForkJoinPool, each slice into its own map,
+ * merged two by two.
+ */
+public class MovAggregations {
+
+    private final MovService movs;
+    private final ForkJoinPool pool;
+
+    public MovAggregations(MovService movs) {
+        this(movs, ForkJoinPool.commonPool());
+    }
+
+    public MovAggregations(MovService movs, ForkJoinPool pool) {
+        this.movs = movs;
+        this.pool = pool;
+    }
+
+    /**
+     * Number of items of each key. Items with a null key are left out.
+     */
+    public <T, K> Map<K, Integer> countBy(List<T> items, Function<T, K> key) {
+        return ParallelQueries.reduce(pool, items, HashMap::new,
+                (Map<K, Integer> res, T item) -> {
+                    K k = key.apply(item);
+                    if(k != null) res.merge(k, 1, Integer::sum);
+                    return res;
+                },
+                (left, right) -> merge(left, right, Integer::sum));
+    }
+
+    /**
+     * Average value of the items of each key. Items with a null key are left out.
+     */
+    public <T, K> Map<K, Double> averageBy(List<T> items, Function<T, K> key, ToDoubleFunction<T> value) {
+        Map<K, double[]> sums = ParallelQueries.reduce(pool, items, HashMap::new,
+                (Map<K, double[]> res, T item) -> {
+                    K k = key.apply(item);
+                    if(k != null) {
+                        double[] sum = res.computeIfAbsent(k, __ -> new double[2]);
+                        sum[0] += value.applyAsDouble(item);
+                        sum[1]++;
+                    }
+                    return res;
+                },
+                (left, right) -> merge(left, right, (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    return a;
+                }));
+        Map<K, Double> res = new HashMap<>(sums.size() * 2);
+        sums.forEach((k, sum) -> res.put(k, sum[0] / sum[1]));
+        return res;
+    }
+
+    /**
+     * Merges the smaller map into the larger one.
+     */
+    private static <K, V> Map<K, V> merge(Map<K, V> left, Map<K, V> right, BinaryOperator<V> op) {
+        Map<K, V> big = left.size() >= right.size() ? left : right;
+        Map<K, V> small = big == left ? right : left;
+        small.forEach((k, v) -> big.merge(k, v, op));
+        return big;
+    }
+
+    /**
+     * Average vote of the movies of each release year,
+     * those without a release date aside.
+     */
+    public SortedMap<Integer, Double> averageVoteByYear(List<SearchItem> items) {
+        return new TreeMap<>(averageBy(items, item -> releaseYear(item.getReleaseDate()), SearchItem::getVoteAverage));
+    }
+
+    /**
+     * Average vote of the movies of each release year in the filmography of an actor.
+     */
+    public SortedMap<Integer, Double> averageVoteByYear(int actorId) {
+        return averageVoteByYear(toList(movs.getActorCreditsCast(actorId)));
+    }
+
+    /**
+     * Year of a yyyy-mm-dd date, or null if unknown, as parsed by SearchColumns.
+     */
+    public static Integer releaseYear(String date) {
+        int year = SearchColumns.releaseYear(date);
+        return year == 0 ? null : year;
+    }
+
+    /**
+     * An actor and the number of movies shared with another one.
+     */
+    public static class CoStar {
+        private final int id;
+        private final String name;
+        private final int movies;
+
+        CoStar(int id, String name, int movies) {
+            this.id = id;
+            this.name = name;
+            this.movies = movies;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMovies() {
+            return movies;
+        }
+
+        @Override
+        public String toString() {
+            return "CoStar{" + "id=" + id + ", name='" + name + '\'' + ", movies=" + movies + '}';
+        }
+    }
+
+    /**
+     * The k actors sharing most movies with the given one, most shared
+     * first. The casts of the actor's filmography are fetched concurrently.
+     */
+    public List<CoStar> topCoStars(int actorId, int k) {
+        List<SearchItem> credits = toList(movs.getActorCreditsCast(actorId));
+        int[] ids = new int[credits.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = credits.get(i).getId();
+        // A movie listed twice, e.g. for two characters, counts once
+        ids = IntSets.of(ids);
+        List<CastItem> items = new ArrayList<>();
+        for (Object cast : movs.load(ids, movs::getMovieCast)) {
+            @SuppressWarnings("unchecked")
+            List<CastItem> list = (List<CastItem>) cast;
+            // An actor playing several characters of a movie counts once
+            Set<Integer> seen = new HashSet<>();
+            for (CastItem item : list) if(seen.add(item.getId())) items.add(item);
+        }
+        Map<Integer, String> names = new HashMap<>();
+        for (CastItem item : items) names.putIfAbsent(item.getId(), item.getName());
+        Map<Integer, Integer> counts = countBy(items, item -> item.getId() == actorId ? null : item.getId());
+        List<CoStar> res = new ArrayList<>(counts.size());
+        counts.forEach((id, n) -> res.add(new CoStar(id, names.get(id), n)));
+        res.sort(Comparator.comparingInt(CoStar::getMovies).reversed().thenComparingInt(CoStar::getId));
+        return res.size() > k ? new ArrayList<>(res.subList(0, k)) : res;
+    }
+}
@@ -17,19 +17,59 @@
 
 package movlazy;
 
+import com.google.common.collect.MapMaker;
+import movlazy.MovWebApi.Endpoint;
 import movlazy.dto.CastItemDto;
 import movlazy.dto.MovieDto;
 import movlazy.dto.PersonDto;
+import movlazy.dto.SearchDto;
 import movlazy.dto.SearchItemDto;
 import movlazy.model.Actor;
 import movlazy.model.CastItem;
 import movlazy.model.Movie;
 import movlazy.model.SearchItem;
+import util.IntHashMap;
+import util.IntSets;
 import util.Queries;
+import util.StringPool;
+import util.TaskScope;
+import util.arena.TextArena;
+import util.json.LazyFields;
+import util.json.RawJson;
+import util.cache.Cache;
+import util.cache.CacheStats;
+import util.cache.RotatingBloomFilter;
 import util.iterator.ArrayIterator;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static java.util.Arrays.asList;
 import static util.Queries.*;
@@ -42,86 +82,681 @@ import static util.Queries.*;
 public class MovService {
 
     private final MovWebApi movWebApi;
-    private final Map<Integer, Movie> movies = new HashMap<>();
-    private final Map<Integer, List<CastItem>> cast = new HashMap<>();
-    private final Map<Integer, Actor> actors = new HashMap<>();
+    private final Cache<Integer, Movie> movies;
+    private final Cache<Integer, List<CastItem>> cast;
+    private final Cache<Integer, Actor> actors;
+    private final Cache<Integer, List<SearchItem>> credits;
+    private final Cache<Integer, int[]> castIds;
+    private final Cache<Integer, int[]> creditIds;
+    private final ConcurrentMap<Integer, SearchItem> searchItems = new MapMaker().weakValues().makeMap();
+    private final Cache<String, SearchDto> searches;
+    private final Cache<Long, Boolean> missing;
+    private final RotatingBloomFilter missingIds;
+    private final Executor fanOutExecutor;
+    private final int batchInFlight;
+    private final boolean siblingPrefetch;
+    private final StringPool strings;
+    /* Shared by lazy models, to pool the fields they decode as the eager ones */
+    private final UnaryOperator<String> dedup = this::dedup;
+    private final TextArena texts;
+    private final boolean lazyDecoding;
+    private final TitleIndex titles;
+    private final List<TitleListener> titleListeners = new CopyOnWriteArrayList<>();
 
     public MovService(MovWebApi movWebApi) {
+        this(movWebApi, new MovServiceConfig());
+    }
+
+    public MovService(MovWebApi movWebApi, MovServiceConfig config) {
         this.movWebApi = movWebApi;
+        this.fanOutExecutor = config.getFanOut();
+        this.batchInFlight = config.getBatchInFlight();
+        this.siblingPrefetch = config.isSiblingPrefetch() && fanOutExecutor != null;
+        this.strings = config.getStringPoolSize() > 0 ? new StringPool(config.getStringPoolSize()) : null;
+        this.lazyDecoding = config.isLazyDecoding();
+        this.titles = config.isTitleIndex() ? new TitleIndex(config.getTitleIndexSize(), this::indexedItem) : null;
+        if(titles != null) titleListeners.add(titles::add);
+        this.texts = config.getOffHeapTextSegmentBytes() > 0 ? new TextArena(config.getOffHeapTextSegmentBytes()) : null;
+        this.movies = expiry(cache(config.getMoviesCacheBytes(), RetainedSize::of),
+                config.getMoviesRefreshAfter(), config.getMoviesExpireAfter(), config.getRefresher());
+        this.cast = cache(config.getCastCacheBytes(), RetainedSize::of);
+        this.actors = expiry(cache(config.getActorsCacheBytes(), RetainedSize::of),
+                config.getActorsRefreshAfter(), config.getActorsExpireAfter(), config.getRefresher());
+        this.credits = expiry(cache(config.getCreditsCacheBytes(), RetainedSize::ofCredits),
+                config.getActorsRefreshAfter(), config.getActorsExpireAfter(), config.getRefresher());
+        this.castIds = cache(config.getIdSetsCacheBytes(), ids -> 16L + 4L * ids.length);
+        this.creditIds = expiry(cache(config.getIdSetsCacheBytes(), ids -> 16L + 4L * ids.length),
+                null, config.getActorsExpireAfter(), config.getRefresher());
+        this.searches = config.getSearchCacheBytes() > 0
+                ? new Cache<String, SearchDto>(config.getSearchCacheBytes(), RetainedSize::of)
+                        .expireAfterWrite(config.getSearchExpireAfter())
+                : null;
+        if(searches != null && config.getSearchRefreshAfter() != null)
+            searches.refreshAfterWrite(config.getSearchRefreshAfter(), config.getRefresher());
+        this.missing = new Cache<Long, Boolean>(config.getMissingCacheSize(), __ -> 1)
+                .expireAfterWrite(config.getMissingExpireAfter());
+        this.missingIds = config.getMissingBloomIds() > 0
+                ? new RotatingBloomFilter(config.getMissingBloomIds(), config.getMissingBloomFpp(), config.getMissingExpireAfter())
+                : null;
+    }
+
+    private static <V> Cache<Integer, V> cache(long maxBytes, ToLongFunction<V> weigher) {
+        return maxBytes > 0 ? Cache.intKeyed(maxBytes, weigher) : Cache.intKeyed();
+    }
+
+    private static <V> Cache<Integer, V> expiry(Cache<Integer, V> cache, Duration refreshAfter, Duration expireAfter, Executor refresher) {
+        if(expireAfter != null) cache.expireAfterWrite(expireAfter);
+        if(refreshAfter != null) cache.refreshAfterWrite(refreshAfter, refresher);
+        return cache;
+    }
+
+    /**
+     * Returns the live statistics of each cache, by cache name.
+     */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> res = new LinkedHashMap<>();
+        res.put("movies", movies.stats());
+        res.put("cast", cast.stats());
+        res.put("actors", actors.stats());
+        res.put("credits", credits.stats());
+        res.put("castIds", castIds.stats());
+        res.put("creditIds", creditIds.stats());
+        if(searches != null) res.put("searches", searches.stats());
+        res.put("missing", missing.stats());
+        return res;
+    }
+
+    /**
+     * Pool deduplicating repeated strings of entities, or null if disabled.
+     */
+    public StringPool stringPool() {
+        return strings;
+    }
+
+    /**
+     * Receives each movie found by the service, by search, filmography or
+     * details, with its titles, e.g. to index them.
+     */
+    public interface TitleListener {
+        void onTitles(SearchItem item, String... titles);
+    }
+
+    /**
+     * Notifies listener of every new or updated SearchItem, and of every
+     * fetched movie, with its original title. Listeners run on the thread
+     * parsing the movie, thus should be quick.
+     */
+    public void addTitleListener(TitleListener listener) {
+        titleListeners.add(listener);
+    }
+
+    /**
+     * Index of the titles of fetched movies, or null if disabled.
+     */
+    public TitleIndex titleIndex() {
+        return titles;
+    }
+
+    /**
+     * Off-heap store of overviews, taglines and biographies, or null if disabled.
+     */
+    public TextArena textArena() {
+        return texts;
+    }
+
+    /**
+     * Publishes the statistics of each cache through JMX, as
+     * MBeans named domain:type=Cache,name=cacheName, and
+     * those of the string pool as domain:type=StringPool.
+     */
+    public void registerMBeans(String domain) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Map.Entry<String, CacheStats> entry : stats().entrySet()) {
+                ObjectName name = new ObjectName(domain + ":type=Cache,name=" + entry.getKey());
+                if(server.isRegistered(name)) server.unregisterMBean(name);
+                server.registerMBean(entry.getValue(), name);
+            }
+            if(strings != null) {
+                ObjectName name = new ObjectName(domain + ":type=StringPool");
+                if(server.isRegistered(name)) server.unregisterMBean(name);
+                server.registerMBean(strings, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the cached movies, casts and actors to a compressed snapshot
+     * file, one entry at a time. The snapshot is written aside and then
+     * moved into place, so a crash never leaves a truncated file behind.
+     */
+    public void snapshot(Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try(DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                Snapshot.writeHeader(out);
+                movies.forEach((id, mov) -> {
+                    try {
+                        Snapshot.write(out, mov);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                cast.forEach((id, items) -> {
+                    try {
+                        Snapshot.write(out, id, items);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                actors.forEach((id, actor) -> {
+                    try {
+                        Snapshot.write(out, actor);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                Snapshot.writeEnd(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteAfterFailure(tmp, e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            deleteAfterFailure(tmp, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the partial snapshot of a failed write, keeping any failure
+     * to do so along with the original one.
+     */
+    private static void deleteAfterFailure(Path tmp, Throwable failure) {
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
     }
 
+    /**
+     * Restores a snapshot in background, on executor. The service may be used
+     * meanwhile: a lookup of an entry not restored yet just loads it as usual.
+     * Returns a future of the number of restored entries.
+     */
+    public CompletableFuture<Integer> restore(Path file, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> restore(file), executor);
+    }
+
+    /**
+     * Restores a snapshot, rebuilding each entry as if it was fetched, so
+     * that the lazy suppliers of the model are wired to this service.
+     * Entries already cached, or loading, are kept.
+     */
+    public int restore(Path file) {
+        try(DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            return Snapshot.read(in, new Snapshot.Visitor() {
+                public void movie(MovieDto mov) {
+                    movies.putIfAbsent(mov.getId(), parseMovieDto(mov));
+                }
+                public void cast(int movieId, CastItemDto[] items) {
+                    cast.putIfAbsent(movieId, castItems(items));
+                }
+                public void actor(PersonDto actor) {
+                    actors.putIfAbsent(actor.getId(), parsePersonDto(actor));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Searches upstream page by page, up to the total pages reported by
+     * the last page fetched, thus without requesting a page past the end.
+     */
     public Iterable<SearchItem> search(String name) {
-        return
-        map(                     // Iterable<SearchItem>
-            this::parseSearchItemDto,
-            flatMap(             // Iterable<SearchItemDto>
-                movs -> of(movs),
-                takeWhile(       // Iterable<SearchItemDto[]>
-                    movs -> movs.length != 0,
-                    map(         // Iterable<SearchItemDto[]>
-                        page -> movWebApi.search(name, page),
-                        iterate( // Iterable<Integer>
-                                0,
-                                prev -> ++prev)
+        return () -> {
+            int[] totalPages = {1};  // Known once the first page arrives
+            return
+            map(                     // Iterable<SearchItem>
+                this::parseSearchItemDto,
+                flatMap(             // Iterable<SearchItemDto>
+                    movs -> of(movs),
+                    takeWhile(       // Iterable<SearchItemDto[]>
+                        movs -> movs.length != 0,
+                        map(         // Iterable<SearchItemDto[]>
+                            page -> {
+                                SearchDto dto = searchPage(name, page);
+                                totalPages[0] = dto.getTotalPages();
+                                return dto.getResults();
+                            },
+                            takeWhile(   // Iterable<Integer>
+                                page -> page <= totalPages[0],
+                                iterate(
+                                    0,
+                                    prev -> ++prev)
+                                )
+                            )
+                              )
                         )
-                          )
-                    )
-            );
+                ).iterator();
+        };
+    }
+
+    /**
+     * Searches the title index only, returning up to limit movies among
+     * those already fetched, best voted first. Empty without an index.
+     */
+    public List<SearchItem> searchLocal(String name, int limit) {
+        return titles == null ? Collections.emptyList() : titles.search(name, limit);
     }
 
+    /**
+     * Answers from the title index when it has at least minResults movies
+     * matching name, otherwise searches upstream, as search(name) does.
+     */
+    public Iterable<SearchItem> searchLocalFirst(String name, int minResults) {
+        List<SearchItem> local = searchLocal(name, Integer.MAX_VALUE);
+        return local.size() >= minResults ? local : search(name);
+    }
+
+    /**
+     * Gets a page of results from the search cache, when enabled.
+     * Queries differing only in case or spacing share the same entries.
+     */
+    private SearchDto searchPage(String name, int page) {
+        if(searches == null) return movWebApi.searchPage(name, page);
+        String query = name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return searches.get(query + '#' + page, __ -> movWebApi.searchPage(query, page));
+    }
+
+    /**
+     * Returns the same SearchItem for the same movie, whether it comes from
+     * a search, a filmography or elsewhere, while that item is in use.
+     * A new item replaces the shared one when the vote average changed.
+     */
     private SearchItem parseSearchItemDto(SearchItemDto dto) {
-        return new SearchItem(
-                dto.getId(),
-                dto.getTitle(),
-                dto.getReleaseDate(),
+        SearchItem item = searchItems.get(dto.getId());
+        if(item != null && item.getVoteAverage() == dto.getVoteAverage()) return item;
+        int id = dto.getId();
+        SearchItem fresh = new SearchItem(
+                id,
+                dedup(dto.getTitle()),
+                dedup(dto.getReleaseDate()),
                 dto.getVoteAverage(),
-                () -> getMovie(dto.getId()));
+                () -> getMovie(id));
+        if(item == null) {
+            item = searchItems.putIfAbsent(dto.getId(), fresh);
+            if(item != null) return item;
+        } else {
+            searchItems.put(dto.getId(), fresh);
+        }
+        for (TitleListener listener : titleListeners) listener.onTitles(fresh);
+        return fresh;
+    }
+
+    /**
+     * Notifies title listeners of a fetched movie, by its original title,
+     * along with its SearchItem, which is made up if there is none yet.
+     * The made up item has no release date, so a LazyMovie is not decoded.
+     */
+    private Movie indexed(Movie mov) {
+        if(titleListeners.isEmpty()) return mov;
+        SearchItem item = indexedItem(mov.getId(), mov.getOriginalTitle(), mov.getVoteAverage());
+        for (TitleListener listener : titleListeners) listener.onTitles(item, mov.getOriginalTitle());
+        return mov;
+    }
+
+    /**
+     * The SearchItem in use for an indexed movie, or a new one otherwise.
+     */
+    private SearchItem indexedItem(int id, String title, double vote) {
+        SearchItem item = searchItems.get(id);
+        return item != null ? item : new SearchItem(id, title, null, vote, () -> getMovie(id));
     }
 
     public Movie getMovie(int movId) {
-        return movies.computeIfAbsent(movId, id -> {
-            MovieDto mov = movWebApi.getMovie(id);
-            return new Movie(
-                    mov.getId(),
-                    mov.getOriginalTitle(),
-                    mov.getTagline(),
-                    mov.getOverview(),
-                    mov.getVoteAverage(),
-                    mov.getReleaseDate(),
-                    () -> this.getMovieCast(id));
-        });
+        if(lazyDecoding)
+            return movies.get(movId, id -> fetch(Endpoint.MOVIE, id, i -> parseMovieJson(i, movWebApi.getMovieJson(i))));
+        return movies.get(movId, id -> parseMovieDto(fetch(Endpoint.MOVIE, id, movWebApi::getMovie)));
+    }
+
+    private Movie parseMovieDto(MovieDto mov) {
+        int id = mov.getId();
+        if(texts != null) return indexed(new ArenaMovie(
+                id,
+                dedup(mov.getOriginalTitle()),
+                texts.put(mov.getTagline()),
+                texts.put(mov.getOverview()),
+                mov.getVoteAverage(),
+                dedup(mov.getReleaseDate()),
+                () -> this.getMovieCast(id)));
+        return indexed(new Movie(
+                id,
+                dedup(mov.getOriginalTitle()),
+                mov.getTagline(),
+                mov.getOverview(),
+                mov.getVoteAverage(),
+                dedup(mov.getReleaseDate()),
+                () -> this.getMovieCast(id)));
+    }
+
+    /**
+     * Decodes id, title and vote average of a movie in a single scan of
+     * its JSON, keeping the remaining fields raw until first read.
+     */
+    private Movie parseMovieJson(int movId, byte[] json) {
+        int[] bounds = RawJson.index(json, LazyMovie.FIELDS);
+        int id = RawJson.decodeInt(json, bounds[0], bounds[1]);
+        if(id != movId) throw new NotFoundException(Endpoint.MOVIE, movId);
+        return indexed(new LazyMovie(
+                id,
+                dedup(RawJson.decodeString(json, bounds[2], bounds[3])),
+                RawJson.decodeDouble(json, bounds[4], bounds[5]),
+                new LazyFields(json, bounds, LazyMovie.EAGER, LazyMovie.FIELDS.length - LazyMovie.EAGER),
+                dedup,
+                () -> this.getMovieCast(id)));
     }
 
     public List<CastItem> getMovieCast(int movId) {
-        return cast.computeIfAbsent(
-                movId,
-                id -> toList(
-                        map(this::parseCastItemDto, of(movWebApi.getMovieCast(id))))
-        );
+        return cast.get(movId, id -> castItems(fetch(Endpoint.MOVIE_CREDITS, id, movWebApi::getMovieCast)));
     }
-    private CastItem parseCastItemDto(CastItemDto dto) {
+
+    /**
+     * With sibling prefetch on, the first getActor() on any item of
+     * the cast starts loading the actors of all of them.
+     */
+    private List<CastItem> castItems(CastItemDto[] dtos) {
+        if(!siblingPrefetch || dtos.length < 2)
+            return toList(map(dto -> parseCastItemDto(dto, null), of(dtos)));
+        int[] ids = new int[dtos.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = dtos[i].getId();
+        AtomicBoolean started = new AtomicBoolean();
+        Runnable prefetch = () -> {
+            if(started.compareAndSet(false, true)) prefetch(ids, actors, id -> getActor(id, null));
+        };
+        return toList(map(dto -> parseCastItemDto(dto, prefetch), of(dtos)));
+    }
+
+    private CastItem parseCastItemDto(CastItemDto dto, Runnable prefetch) {
+        int id = dto.getId();
+        String name = dedup(dto.getName());
         return new CastItem(
-                dto.getId(),
+                id,
                 dto.getMovieId(),
-                dto.getCharacter(),
-                dto.getName(),
-                () -> getActor(dto.getId(), dto.getName())
+                dedup(dto.getCharacter()),
+                name,
+                () -> {
+                    if(prefetch != null) prefetch.run();
+                    return getActor(id, name);
+                }
         );
     }
 
     public Actor getActor(int actorId, String name) {
-        return actors.computeIfAbsent(actorId, id -> {
-            PersonDto person = movWebApi.getPerson(actorId);
-            return new Actor(
-                    person.getId(),
-                    person.getName(),
-                    person.getPlace_of_birth(),
-                    person.getBiography(),
-                    () -> getActorCreditsCast(actorId).iterator());
-        });
+        if(lazyDecoding)
+            return actors.get(actorId, id -> fetch(Endpoint.PERSON, id, i -> parsePersonJson(i, movWebApi.getPersonJson(i))));
+        return actors.get(actorId, id -> parsePersonDto(fetch(Endpoint.PERSON, id, movWebApi::getPerson)));
+    }
+
+    private Actor parsePersonDto(PersonDto person) {
+        int id = person.getId();
+        if(texts != null) return new ArenaActor(
+                id,
+                dedup(person.getName()),
+                dedup(person.getPlace_of_birth()),
+                texts.put(person.getBiography()),
+                () -> getActorCreditsCast(id).iterator());
+        return new Actor(
+                id,
+                dedup(person.getName()),
+                dedup(person.getPlace_of_birth()),
+                person.getBiography(),
+                () -> getActorCreditsCast(id).iterator());
+    }
+
+    private Actor parsePersonJson(int actorId, byte[] json) {
+        int[] bounds = RawJson.index(json, LazyActor.FIELDS);
+        int id = RawJson.decodeInt(json, bounds[0], bounds[1]);
+        if(id != actorId) throw new NotFoundException(Endpoint.PERSON, actorId);
+        return new LazyActor(
+                id,
+                dedup(RawJson.decodeString(json, bounds[2], bounds[3])),
+                new LazyFields(json, bounds, LazyActor.EAGER, LazyActor.FIELDS.length - LazyActor.EAGER),
+                dedup,
+                () -> getActorCreditsCast(id).iterator());
+    }
+
+    /**
+     * Returns the pooled copy of a string that often repeats among
+     * entities, such as names, characters or dates, when pooling is on.
+     * Suppliers of the model capture ids and pooled strings rather than
+     * DTOs, so the duplicates decoded by Gson are left for collection.
+     */
+    private String dedup(String str) {
+        return strings == null ? str : strings.intern(str);
     }
 
     public Iterable<SearchItem> getActorCreditsCast(int actorId) {
-        return map(this::parseSearchItemDto, of(movWebApi.getPersonCreditsCast(actorId)));
+        return credits.get(
+                actorId,
+                id -> toList(
+                        map(this::parseSearchItemDto, of(fetch(Endpoint.PERSON_CREDITS, id, movWebApi::getPersonCreditsCast))))
+        );
+    }
+
+    /**
+     * Fetches id from the given endpoint, unless it is known to be missing.
+     * Then it fails straight away with a NotFoundException, so replaying
+     * dead ids does not reach the upstream. The Bloom filter, when enabled,
+     * remembers missing ids beyond those the bounded cache keeps, such as
+     * ones evicted by a scan of distinct dead ids, and for no longer.
+     */
+    private <T> T fetch(Endpoint endpoint, int id, IntFunction<T> request) {
+        long key = (long) endpoint.ordinal() << 32 | (id & 0xFFFFFFFFL);
+        // A lookup rather than containsKey, so replayed dead ids count as hot and as hits
+        if(missing.getIfPresent(key) != null || missingIds != null && missingIds.mightContain(key))
+            throw new NotFoundException(endpoint, id);
+        try {
+            return request.apply(id);
+        } catch (NotFoundException e) {
+            missing.put(key, Boolean.TRUE);
+            if(missingIds != null) missingIds.put(key);
+            throw e;
+        }
+    }
+
+    boolean isCastCached(int movId) {
+        return cast.containsKey(movId);
+    }
+
+    boolean isCreditsCached(int actorId) {
+        return credits.containsKey(actorId);
+    }
+
+    /**
+     * Returns the shortest chain of at most maxDegrees movies linking two
+     * actors, searching from both ends at once. Filmographies and casts
+     * are shared with the caches, and each level of the search is fetched
+     * concurrently on the fan-out executor. The search gives up rather than
+     * make more than maxRequests requests.
+     */
+    public Separation getSeparation(int fromActor, int toActor, int maxDegrees, int maxRequests) {
+        return new SeparationSearch(this, maxDegrees, maxRequests).run(fromActor, toActor);
+    }
+
+    /**
+     * Ids of the movies of an actor's filmography, as a sorted set of
+     * {@link IntSets}, built once from its credits.
+     */
+    public int[] getMovieIds(int actorId) {
+        return creditIdsOf(actorId).clone();
+    }
+
+    /**
+     * Ids of the actors of a movie's cast, as a sorted set of
+     * {@link IntSets}, built once from its cast.
+     */
+    public int[] getCastIds(int movId) {
+        return castIdsOf(movId).clone();
+    }
+
+    private int[] creditIdsOf(int actorId) {
+        return creditIds.get(actorId, id -> {
+            List<SearchItem> items = toList(getActorCreditsCast(id));
+            int[] ids = new int[items.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = items.get(i).getId();
+            return IntSets.of(ids);
+        });
+    }
+
+    private int[] castIdsOf(int movId) {
+        return castIds.get(movId, id -> {
+            List<CastItem> items = getMovieCast(id);
+            int[] ids = new int[items.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = items.get(i).getId();
+            return IntSets.of(ids);
+        });
+    }
+
+    /**
+     * Ids of the movies shared by every given actor, in ascending order.
+     * Missing filmographies are fetched concurrently on the fan-out executor.
+     */
+    public int[] getSharedMovies(int... actorIds) {
+        return intersectAll(load(actorIds, this::creditIdsOf));
+    }
+
+    /**
+     * Ids of the actors shared by the casts of every given movie, in ascending order.
+     * Missing casts are fetched concurrently on the fan-out executor.
+     */
+    public int[] getSharedCast(int... movIds) {
+        return intersectAll(load(movIds, this::castIdsOf));
+    }
+
+    private static int[] intersectAll(Object[] sets) {
+        int[][] res = new int[sets.length][];
+        for (int i = 0; i < sets.length; i++) res[i] = (int[]) sets[i];
+        return IntSets.intersectAll(res);
+    }
+
+    /**
+     * Returns the Movie of each item, fetching the missing ones
+     * concurrently on the fan-out executor.
+     */
+    public List<Movie> getMovies(Iterable<SearchItem> items) {
+        List<SearchItem> list = toList(items);
+        int[] ids = new int[list.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = list.get(i).getId();
+        return getMovies(ids);
+    }
+
+    /**
+     * Returns the Actor of each CastItem of the given movie, fetching
+     * the missing ones concurrently on the fan-out executor.
+     */
+    public List<Actor> getCastActors(int movId) {
+        List<CastItem> items = getMovieCast(movId);
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = items.get(i).getId();
+        return getActors(ids);
+    }
+
+    /**
+     * Returns the movies of the given ids, in the same order. Cached ones
+     * are taken straight away and the missing ones are fetched concurrently,
+     * at most batchInFlight at once, on the fan-out executor. Fails with
+     * the first failed fetch, e.g. a NotFoundException.
+     */
+    public List<Movie> getMovies(int[] ids) {
+        return batch(ids, movies, this::getMovie);
+    }
+
+    /**
+     * Returns the actors of the given ids, in the same order, as getMovies(int[]).
+     */
+    public List<Actor> getActors(int[] ids) {
+        return batch(ids, actors, id -> getActor(id, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> List<V> batch(int[] ids, Cache<Integer, V> cache, IntFunction<V> get) {
+        Object[] res = new Object[ids.length];
+        IntHashMap<Integer> missing = new IntHashMap<>();
+        int[] misses = new int[ids.length];
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            V val = cache.containsKey(ids[i]) ? cache.getIfPresent(ids[i]) : null;
+            if(val != null) res[i] = val;
+            else if(!missing.containsKey(ids[i])) {
+                missing.put(ids[i], n);
+                misses[n++] = ids[i];
+            }
+        }
+        if(n > 0) {
+            Object[] loaded = load(Arrays.copyOf(misses, n), get);
+            for (int i = 0; i < ids.length; i++)
+                if(res[i] == null) res[i] = loaded[missing.get(ids[i])];
+        }
+        return (List<V>) Arrays.asList(res);
+    }
+
+    /**
+     * Gets every id, by at most batchInFlight subtasks of a TaskScope,
+     * each one taking the next id not taken yet, or sequentially when
+     * there is no fan-out executor. Subtasks of the same id share
+     * a single load through the caches. Once a load fails, or a subtask is
+     * cancelled, no subtask takes further ids.
+     */
+    <V> Object[] load(int[] ids, IntFunction<V> get) {
+        Object[] res = new Object[ids.length];
+        int workers = Math.min(batchInFlight, ids.length);
+        if(fanOutExecutor == null || workers < 2) {
+            for (int i = 0; i < ids.length; i++) res[i] = get.apply(ids[i]);
+            return res;
+        }
+        AtomicInteger next = new AtomicInteger();
+        try(TaskScope scope = new TaskScope(fanOutExecutor)) {
+            for (int w = 0; w < workers; w++)
+                scope.fork(() -> {
+                    for (int i = next.getAndIncrement(); i < ids.length; i = next.getAndIncrement()) {
+                        if(scope.isFailed() || Thread.currentThread().isInterrupted()) break;
+                        res[i] = get.apply(ids[i]);
+                    }
+                    return null;
+                });
+            scope.join();
+        }
+        return res;
+    }
+
+    /**
+     * Starts loading the ids not cached yet on the fan-out executor, at most
+     * batchInFlight at once, without waiting for them. A failed load is
+     * not cached, thus a later get retries it and reports its failure.
+     */
+    private <V> void prefetch(int[] ids, Cache<Integer, V> cache, IntFunction<V> get) {
+        int[] misses = new int[ids.length];
+        int n = 0;
+        for (int id : ids) if(!cache.containsKey(id)) misses[n++] = id;
+        int count = n;
+        AtomicInteger next = new AtomicInteger();
+        for (int w = 0; w < Math.min(batchInFlight, count); w++)
+            fanOutExecutor.execute(() -> {
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                    try {
+                        get.apply(misses[i]);
+                    } catch (RuntimeException e) {
+                        // Left for a later get
+                    }
+                }
+            });
     }
 }
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movlazy;
+
+import util.cache.RefreshExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Options of a {@link MovService}. Setters return this config to be chained:
+ * <pre>{@code
+ *     new MovService(api, new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor()));
+ * }</pre>
+ */
+public class MovServiceConfig {
+
+    private Executor fanOut;
+    private int batchInFlight = 8;
+    private boolean siblingPrefetch;
+    private long moviesBytes, castBytes, actorsBytes, creditsBytes, idSetsBytes;
+    private long searchBytes;
+    private Duration searchExpireAfter = Duration.ofMinutes(10), searchRefreshAfter;
+    private Duration moviesRefreshAfter, moviesExpireAfter, actorsRefreshAfter, actorsExpireAfter;
+    private Executor refresher = RefreshExecutor.shared();
+    private int stringPoolSize = 8192;
+    private int offHeapTextSegmentBytes;
+    private boolean lazyDecoding;
+    private boolean titleIndex;
+    private int titleIndexSize = 100_000;
+    private Duration missingExpireAfter = Duration.ofMinutes(5);
+    private int missingCacheSize = 10_000;
+    private int missingBloomIds;
+    private double missingBloomFpp = 0.001;
+
+    /**
+     * Executor running the requests of fan-out operations, such as
+     * {@link MovService#getCastActors(int)}. Without it those requests run
+     * one after the other on the calling thread.
+     */
+    public MovServiceConfig fanOut(Executor executor) {
+        this.fanOut = executor;
+        return this;
+    }
+
+    public Executor getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Maximum requests in flight at once for a single batch load, such as
+     * {@link MovService#getMovies(int[])}, on the fan-out executor.
+     * Defaults to 8.
+     */
+    public MovServiceConfig batchInFlight(int max) {
+        if(max < 1) throw new IllegalArgumentException("Batch in flight must be positive: " + max);
+        this.batchInFlight = max;
+        return this;
+    }
+
+    public int getBatchInFlight() {
+        return batchInFlight;
+    }
+
+    /**
+     * Getting the Actor of a CastItem also starts loading, in background,
+     * the actors of the other items of the same cast, on the fan-out
+     * executor. Off by default, and without a fan-out executor.
+     */
+    public MovServiceConfig siblingPrefetch(boolean enabled) {
+        this.siblingPrefetch = enabled;
+        return this;
+    }
+
+    public boolean isSiblingPrefetch() {
+        return siblingPrefetch;
+    }
+
+    /**
+     * Bounds the approximate heap retained by cached movies, in bytes.
+     * Zero, the default, means unbounded.
+     */
+    public MovServiceConfig moviesCacheBytes(long bytes) {
+        this.moviesBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Bounds the approximate heap retained by cached movie casts, in bytes.
+     */
+    public MovServiceConfig castCacheBytes(long bytes) {
+        this.castBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Bounds the approximate heap retained by cached actors, in bytes.
+     */
+    public MovServiceConfig actorsCacheBytes(long bytes) {
+        this.actorsBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Bounds the approximate heap retained by cached filmographies, in bytes.
+     * Those expire along with actors, as given by actorsExpiry.
+     */
+    public MovServiceConfig creditsCacheBytes(long bytes) {
+        this.creditsBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Bounds the approximate heap retained by cached id sets of casts and
+     * filmographies, as used by {@link MovService#getSharedMovies}, in bytes.
+     */
+    public MovServiceConfig idSetsCacheBytes(long bytes) {
+        this.idSetsBytes = bytes;
+        return this;
+    }
+
+    public long getMoviesCacheBytes() {
+        return moviesBytes;
+    }
+
+    public long getCastCacheBytes() {
+        return castBytes;
+    }
+
+    public long getActorsCacheBytes() {
+        return actorsBytes;
+    }
+
+    public long getIdSetsCacheBytes() {
+        return idSetsBytes;
+    }
+
+    public long getCreditsCacheBytes() {
+        return creditsBytes;
+    }
+
+    /**
+     * Enables the cache of search pages, keyed by normalized query and page
+     * number, bounding its approximate heap in bytes. Disabled by default.
+     */
+    public MovServiceConfig searchCacheBytes(long bytes) {
+        this.searchBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Cached search pages older than duration are fetched again. Defaults to 10 minutes.
+     */
+    public MovServiceConfig searchExpireAfter(Duration duration) {
+        this.searchExpireAfter = duration;
+        return this;
+    }
+
+    /**
+     * Cached search pages older than duration are still served, while
+     * fetched again in background. Should be shorter than searchExpireAfter.
+     */
+    public MovServiceConfig searchRefreshAfter(Duration duration) {
+        this.searchRefreshAfter = duration;
+        return this;
+    }
+
+    /**
+     * Cached movies older than refreshAfter are still returned, while fetched
+     * again in background, and those older than expireAfter are fetched again
+     * before being returned. Either may be null, the default, for never.
+     */
+    public MovServiceConfig moviesExpiry(Duration refreshAfter, Duration expireAfter) {
+        this.moviesRefreshAfter = refreshAfter;
+        this.moviesExpireAfter = expireAfter;
+        return this;
+    }
+
+    /**
+     * Same as moviesExpiry, for cached actors.
+     */
+    public MovServiceConfig actorsExpiry(Duration refreshAfter, Duration expireAfter) {
+        this.actorsRefreshAfter = refreshAfter;
+        this.actorsExpireAfter = expireAfter;
+        return this;
+    }
+
+    public Duration getMoviesRefreshAfter() {
+        return moviesRefreshAfter;
+    }
+
+    public Duration getMoviesExpireAfter() {
+        return moviesExpireAfter;
+    }
+
+    public Duration getActorsRefreshAfter() {
+        return actorsRefreshAfter;
+    }
+
+    public Duration getActorsExpireAfter() {
+        return actorsExpireAfter;
+    }
+
+    /**
+     * Executor of background refreshes. Defaults to the shared
+     * {@link RefreshExecutor}, which refreshes the hottest keys first.
+     */
+    public MovServiceConfig refresher(Executor executor) {
+        this.refresher = executor;
+        return this;
+    }
+
+    public long getSearchCacheBytes() {
+        return searchBytes;
+    }
+
+    public Duration getSearchExpireAfter() {
+        return searchExpireAfter;
+    }
+
+    public Duration getSearchRefreshAfter() {
+        return searchRefreshAfter;
+    }
+
+    public Executor getRefresher() {
+        return refresher;
+    }
+
+    /**
+     * Ids found missing upstream are answered with a NotFoundException,
+     * without requests, for duration. Defaults to 5 minutes, shorter than
+     * the life of found entities since a missing id may yet be created.
+     */
+    public MovServiceConfig missingExpireAfter(Duration duration) {
+        this.missingExpireAfter = duration;
+        return this;
+    }
+
+    /**
+     * Bounds the number of remembered missing ids. Defaults to 10000.
+     */
+    public MovServiceConfig missingCacheSize(int size) {
+        this.missingCacheSize = size;
+        return this;
+    }
+
+    /**
+     * Also remembers missing ids in a lock-free Bloom filter, sized for
+     * expectedIds per half of missingExpireAfter with the given false
+     * positive rate, which keeps answering NotFoundException for ids the
+     * bounded missing cache has evicted, e.g. on a scan of distinct dead ids.
+     * An id is remembered from half to all of missingExpireAfter, at a few
+     * bits per id rather than a cache entry. The trade-off is that a false
+     * positive reports an existing, uncached id as missing for up to
+     * missingExpireAfter, so keep fpp low. Disabled by default.
+     */
+    public MovServiceConfig missingBloomFilter(int expectedIds, double fpp) {
+        this.missingBloomIds = expectedIds;
+        this.missingBloomFpp = fpp;
+        return this;
+    }
+
+    public Duration getMissingExpireAfter() {
+        return missingExpireAfter;
+    }
+
+    public int getMissingCacheSize() {
+        return missingCacheSize;
+    }
+
+    public int getMissingBloomIds() {
+        return missingBloomIds;
+    }
+
+    public double getMissingBloomFpp() {
+        return missingBloomFpp;
+    }
+
+    /**
+     * Number of slots of the pool deduplicating names, characters, places
+     * of birth, titles and dates of entities. Defaults to 8192, while
+     * zero disables pooling.
+     */
+    public MovServiceConfig stringPoolSize(int size) {
+        this.stringPoolSize = size;
+        return this;
+    }
+
+    public int getStringPoolSize() {
+        return stringPoolSize;
+    }
+
+    /**
+     * Keeps overviews, taglines and biographies off-heap, as UTF-8, in direct
+     * buffers of segmentBytes each, decoding them on each get. Zero, the
+     * default, keeps them as Strings.
+     */
+    public MovServiceConfig offHeapText(int segmentBytes) {
+        this.offHeapTextSegmentBytes = segmentBytes;
+        return this;
+    }
+
+    public int getOffHeapTextSegmentBytes() {
+        return offHeapTextSegmentBytes;
+    }
+
+    /**
+     * Fetched movies and actors keep their raw JSON values, apart from id,
+     * name or title and vote average, decoding each one on its first get.
+     * Those are then kept on-heap, even with offHeapText. Off by default.
+     */
+    public MovServiceConfig lazyDecoding(boolean lazy) {
+        this.lazyDecoding = lazy;
+        return this;
+    }
+
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Indexes the titles of every movie fetched, by search, filmography or
+     * details, for {@link MovService#searchLocal}. The index keeps the id,
+     * title and vote average of up to titleIndexSize of those movies.
+     * Off by default.
+     */
+    public MovServiceConfig titleIndex(boolean enabled) {
+        this.titleIndex = enabled;
+        return this;
+    }
+
+    public boolean isTitleIndex() {
+        return titleIndex;
+    }
+
+    /**
+     * Bounds the number of movies in the title index, removing the least
+     * recently fetched ones beyond it. Defaults to 100000.
+     */
+    public MovServiceConfig titleIndexSize(int size) {
+        this.titleIndexSize = size;
+        return this;
+    }
+
+    public int getTitleIndexSize() {
+        return titleIndexSize;
+    }
+}
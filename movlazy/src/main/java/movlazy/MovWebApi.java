@@ -28,9 +28,12 @@ import util.IRequest;
 import util.iterator.InputStreamIterator;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.text.MessageFormat;
 
@@ -42,6 +45,11 @@ import static util.Queries.reduce;
  */
 
 public class MovWebApi {
+    /**
+     * Upstream endpoints, one per operation of this API.
+     */
+    public enum Endpoint { SEARCH, MOVIE, MOVIE_CREDITS, PERSON, PERSON_CREDITS }
+
     /**
      * Constants
      *
@@ -86,12 +94,18 @@ public class MovWebApi {
      * E.g. https://api.themoviedb.org/3/search/movie?api_key=9b2f22e97ee512a9d3224d4aa0d8bd39&query=war+games
      */
     public SearchItemDto[] search(String title, int page) {
+        return searchPage(title, page).getResults();
+    }
+
+    /**
+     * Same as search, but also with the total number of pages.
+     */
+    public SearchDto searchPage(String title, int page) {
         String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_SEARCH, MOVIE_DB_TOKEN,
                 title.replaceAll(" ", "+"), Long.toString(page));
         Iterable<String> scr = () -> new InputStreamIterator(() -> req.getBody(url));
         String json = reduce(scr, "", (prev, curr) -> prev+curr );
-        SearchDto dto = gson.fromJson(json, SearchDto.class);
-        return dto.getResults();
+        return gson.fromJson(json, SearchDto.class);
     }
 
     /**
@@ -99,9 +113,17 @@ public class MovWebApi {
      */
     public MovieDto getMovie(int id) {
         String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_MOVIE, MOVIE_DB_TOKEN, Long.toString(id));
-        Iterable<String> scr = () -> new InputStreamIterator(() -> req.getBody(url));
-        String json = reduce(scr, "", (prev, curr) -> prev+curr );
-        return gson.fromJson(json, MovieDto.class);
+        MovieDto dto = gson.fromJson(body(url, Endpoint.MOVIE, id), MovieDto.class);
+        if(dto == null || dto.getId() != id) throw new NotFoundException(Endpoint.MOVIE, id);
+        return dto;
+    }
+
+    /**
+     * Raw JSON body of getMovie, for decoding fields on demand.
+     */
+    public byte[] getMovieJson(int id) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_MOVIE, MOVIE_DB_TOKEN, Long.toString(id));
+        return bytes(url, Endpoint.MOVIE, id);
     }
 
     /**
@@ -109,9 +131,8 @@ public class MovWebApi {
      */
     public CastItemDto[] getMovieCast(int movieId) {
         String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_MOVIE_CREDITS, MOVIE_DB_TOKEN, Long.toString(movieId));
-        Iterable<String> scr = () -> new InputStreamIterator(() -> req.getBody(url));
-        String json = reduce(scr, "", (prev, curr) -> prev+curr );
-        CastDto dto = gson.fromJson(json, CastDto.class);
+        CastDto dto = gson.fromJson(body(url, Endpoint.MOVIE_CREDITS, movieId), CastDto.class);
+        if(dto == null || dto.getCast() == null) throw new NotFoundException(Endpoint.MOVIE_CREDITS, movieId);
         return dto.getCast();
     }
 
@@ -120,9 +141,17 @@ public class MovWebApi {
      */
     public PersonDto getPerson(int personId) {
         String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_PERSON, MOVIE_DB_TOKEN, Long.toString(personId));
-        Iterable<String> scr = () -> new InputStreamIterator(() -> req.getBody(url));
-        String json = reduce(scr, "", (prev, curr) -> prev+curr );
-        return gson.fromJson(json, PersonDto.class);
+        PersonDto dto = gson.fromJson(body(url, Endpoint.PERSON, personId), PersonDto.class);
+        if(dto == null || dto.getId() != personId) throw new NotFoundException(Endpoint.PERSON, personId);
+        return dto;
+    }
+
+    /**
+     * Raw JSON body of getPerson, for decoding fields on demand.
+     */
+    public byte[] getPersonJson(int personId) {
+        String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_PERSON, MOVIE_DB_TOKEN, Long.toString(personId));
+        return bytes(url, Endpoint.PERSON, personId);
     }
 
     /**
@@ -130,9 +159,42 @@ public class MovWebApi {
      */
     public SearchItemDto[] getPersonCreditsCast(int personId) {
         String url = MessageFormat.format(MOVIE_DB_HOST + MOVIE_DB_PERSON_CREDITS, MOVIE_DB_TOKEN, Long.toString(personId));
-        Iterable<String> scr = () -> new InputStreamIterator(() -> req.getBody(url));
-        String json = reduce(scr, "", (prev, curr) -> prev+curr );
-        SearchDto dto = gson.fromJson(json, SearchDto.class);
+        SearchDto dto = gson.fromJson(body(url, Endpoint.PERSON_CREDITS, personId), SearchDto.class);
+        if(dto == null || dto.getCast() == null) throw new NotFoundException(Endpoint.PERSON_CREDITS, personId);
         return dto.getCast();
     }
+
+    /**
+     * Reads the whole body of url as bytes, reporting a 404 as a NotFoundException.
+     */
+    private byte[] bytes(String url, Endpoint endpoint, int id) {
+        try(InputStream in = req.getBody(url)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int n; (n = in.read(buf)) > 0; ) out.write(buf, 0, n);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause())
+                if(cause instanceof FileNotFoundException) throw new NotFoundException(endpoint, id);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the whole body of url. A missing resource, either a 404 or the
+     * status JSON TMDb replies with, is reported by the callers as a
+     * NotFoundException rather than parsed into a half-empty DTO.
+     */
+    private String body(String url, Endpoint endpoint, int id) {
+        Iterable<String> scr = () -> new InputStreamIterator(() -> req.getBody(url));
+        try {
+            return reduce(scr, "", (prev, curr) -> prev+curr );
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause())
+                if(cause instanceof FileNotFoundException) throw new NotFoundException(endpoint, id);
+            throw e;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+/**
+ * The upstream has no resource with the requested id, e.g. a deleted
+ * movie or a bad person id. Unlike other failures, it is worth caching.
+ */
+public class NotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MovWebApi.Endpoint endpoint;
+    private final int id;
+
+    public NotFoundException(MovWebApi.Endpoint endpoint, int id) {
+        super(endpoint + " " + id + " not found");
+        this.endpoint = endpoint;
+        this.id = id;
+    }
+
+    public MovWebApi.Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
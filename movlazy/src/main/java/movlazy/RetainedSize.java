@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movlazy;
+
+import movlazy.dto.SearchDto;
+import movlazy.dto.SearchItemDto;
+import movlazy.model.Actor;
+import movlazy.model.CastItem;
+import movlazy.model.Movie;
+import movlazy.model.SearchItem;
+
+import java.util.List;
+
+/**
+ * Rough estimates, in bytes, of the heap retained by model objects,
+ * used to weigh the entries of the MovService caches. They assume a
+ * 64-bit JVM with compressed references and count 2 bytes per char.
+ * Suppliers are counted as small lambdas, ignoring what they reach.
+ */
+public class RetainedSize {
+    private static final int HEADER = 16, REF = 4, LAMBDA = 24;
+    /**
+     * On-heap part of an off-heap text: its handle and PhantomReference.
+     */
+    private static final int TEXT = HEADER + REF + 4 + HEADER + 4 * REF + 4;
+
+    public static long of(String str) {
+        return str == null ? 0 : 40 + 2L * str.length();
+    }
+
+    public static long of(Movie mov) {
+        if(mov instanceof LazyMovie)
+            return HEADER + 4 + 8 + 7 * REF + LAMBDA
+                    + of(mov.getOriginalTitle())
+                    + ((LazyMovie) mov).fields.retainedSize();
+        long texts = mov instanceof ArenaMovie
+                ? 2 * (REF + TEXT)
+                : of(mov.getTagline()) + of(mov.getOverview());
+        return HEADER + 4 + 8 + 5 * REF + LAMBDA
+                + of(mov.getOriginalTitle())
+                + texts
+                + of(mov.getReleaseDate());
+    }
+
+    public static long of(CastItem item) {
+        return HEADER + 4 + 4 + 3 * REF + LAMBDA
+                + of(item.getCharacter())
+                + of(item.getName());
+    }
+
+    public static long of(List<CastItem> cast) {
+        long size = HEADER + 8 + HEADER + REF * (long) cast.size();
+        for (CastItem item : cast) size += of(item);
+        return size;
+    }
+
+    public static long of(SearchItemDto item) {
+        return HEADER + 4 + 8 + 2 * REF + of(item.getTitle()) + of(item.getReleaseDate());
+    }
+
+    public static long of(SearchDto page) {
+        long size = HEADER + 4 + 2 * REF;
+        if(page.getResults() != null) {
+            size += HEADER + REF * (long) page.getResults().length;
+            for (SearchItemDto item : page.getResults()) size += of(item);
+        }
+        return size;
+    }
+
+    public static long of(SearchItem item) {
+        return HEADER + 4 + 8 + 3 * REF + LAMBDA + of(item.getTitle()) + of(item.getReleaseDate());
+    }
+
+    /**
+     * SearchItems are shared among filmographies, yet counted in each one.
+     */
+    public static long ofCredits(List<SearchItem> movies) {
+        long size = HEADER + 8 + HEADER + REF * (long) movies.size();
+        for (SearchItem item : movies) size += of(item);
+        return size;
+    }
+
+    public static long of(Actor actor) {
+        if(actor instanceof LazyActor)
+            return HEADER + 4 + 6 * REF + LAMBDA
+                    + of(actor.getName())
+                    + ((LazyActor) actor).fields.retainedSize();
+        long biography = actor instanceof ArenaActor ? REF + TEXT : of(actor.getBiography());
+        return HEADER + 4 + 4 * REF + LAMBDA
+                + of(actor.getName())
+                + of(actor.getPlaceOfBirth())
+                + biography;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+/**
+ * Shortest chain of movies linking two actors: actor i and actor i + 1
+ * both play in movie i. Also reports the requests the search cost.
+ */
+public class Separation {
+
+    private final int[] actors;
+    private final String[] actorNames;
+    private final int[] movies;
+    private final String[] movieTitles;
+    private final int requests;
+    private final boolean budgetExceeded;
+
+    Separation(int[] actors, String[] actorNames, int[] movies, String[] movieTitles, int requests, boolean budgetExceeded) {
+        this.actors = actors;
+        this.actorNames = actorNames;
+        this.movies = movies;
+        this.movieTitles = movieTitles;
+        this.requests = requests;
+        this.budgetExceeded = budgetExceeded;
+    }
+
+    /**
+     * No chain, e.g. for actors that do not exist.
+     */
+    public static Separation notFound(int requests, boolean budgetExceeded) {
+        return new Separation(new int[0], new String[0], new int[0], new String[0], requests, budgetExceeded);
+    }
+
+    public boolean isConnected() {
+        return actors.length > 0;
+    }
+
+    /**
+     * Number of movies in the chain, or -1 if the actors are not connected.
+     */
+    public int getDegrees() {
+        return isConnected() ? movies.length : -1;
+    }
+
+    public int[] getActors() {
+        return actors.clone();
+    }
+
+    /**
+     * Names of the actors, null for those only known by filmographies
+     * whose naming would exceed the budget of requests.
+     */
+    public String[] getActorNames() {
+        return actorNames.clone();
+    }
+
+    public int[] getMovies() {
+        return movies.clone();
+    }
+
+    public String[] getMovieTitles() {
+        return movieTitles.clone();
+    }
+
+    /**
+     * Number of casts and filmographies fetched, those already cached aside.
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * Whether the search gave up, as going on would exceed its budget of requests.
+     */
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    @Override
+    public String toString() {
+        if(!isConnected()) return "Separation{not connected, requests=" + requests + "}";
+        StringBuilder res = new StringBuilder("Separation{").append(actorNames[0]);
+        for (int i = 0; i < movies.length; i++)
+            res.append(" -[").append(movieTitles[i]).append("]- ").append(actorNames[i + 1]);
+        return res.append(", requests=").append(requests).append('}').toString();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.model.CastItem;
+import movlazy.model.SearchItem;
+import util.IntHashMap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Bidirectional breadth first search of the shortest chain of movies
+ * between two actors, over the filmographies and casts of MovService.
+ *
+ * Each step expands the side with the smaller frontier by one level:
+ * the filmographies of its frontier actors and then the casts of the
+ * movies found, each round loaded concurrently. The search stops as soon
+ * as a movie or an actor is reached from both sides.
+ */
+class SeparationSearch {
+
+    private static final int NONE = -1;
+
+    private final MovService movs;
+    private final int maxDegrees;
+    private final int maxRequests;
+    private final IntHashMap<String> names = new IntHashMap<>();
+    private final IntHashMap<String> titles = new IntHashMap<>();
+    private int requests;
+
+    SeparationSearch(MovService movs, int maxDegrees, int maxRequests) {
+        this.movs = movs;
+        this.maxDegrees = maxDegrees;
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * One side of the search. Each actor maps to the movie it was reached
+     * through, and each movie to the actor whose filmography has it.
+     */
+    private static class Side {
+        final IntHashMap<Integer> actorParent = new IntHashMap<>();
+        final IntHashMap<Integer> movieParent = new IntHashMap<>();
+        int[] frontier;
+        int depth;
+
+        Side(int root) {
+            actorParent.put(root, NONE);
+            frontier = new int[]{root};
+        }
+
+        int movieDepth(int movie) {
+            int depth = 0;
+            for (int m = movie; m != NONE; m = actorParent.get(movieParent.get(m))) depth++;
+            return depth;
+        }
+    }
+
+    Separation run(int from, int to) {
+        Side fwd = new Side(from), bwd = new Side(to);
+        if(from == to) return path(fwd, bwd, from, NONE);
+        while(fwd.frontier.length > 0 && bwd.frontier.length > 0 && fwd.depth + bwd.depth < maxDegrees) {
+            Side side = fwd.frontier.length <= bwd.frontier.length ? fwd : bwd;
+            Side other = side == fwd ? bwd : fwd;
+            // Filmographies of the frontier actors
+            if(!spend(side.frontier, movs::isCreditsCached)) return Separation.notFound(requests, true);
+            Object[] credits = movs.load(side.frontier, movs::getActorCreditsCast);
+            int[] found = new int[16];
+            int n = 0, meet = NONE, best = Integer.MAX_VALUE;
+            for (int i = 0; i < credits.length; i++) {
+                @SuppressWarnings("unchecked")
+                Iterable<SearchItem> items = (Iterable<SearchItem>) credits[i];
+                for (SearchItem item : items) {
+                    int m = item.getId();
+                    if(side.movieParent.containsKey(m)) continue;
+                    side.movieParent.put(m, side.frontier[i]);
+                    titles.put(m, item.getTitle());
+                    if(n == found.length) found = Arrays.copyOf(found, n * 2);
+                    found[n++] = m;
+                    if(other.movieParent.containsKey(m)) {
+                        int d = other.movieDepth(m);
+                        if(d < best) {
+                            best = d;
+                            meet = m;
+                        }
+                    }
+                }
+            }
+            if(meet != NONE) return path(fwd, bwd, NONE, meet);
+            // Casts of the movies found
+            int[] movies = Arrays.copyOf(found, n);
+            if(!spend(movies, movs::isCastCached)) return Separation.notFound(requests, true);
+            Object[] casts = movs.load(movies, movs::getMovieCast);
+            int[] next = new int[16];
+            n = 0;
+            for (int i = 0; i < casts.length; i++) {
+                @SuppressWarnings("unchecked")
+                List<CastItem> items = (List<CastItem>) casts[i];
+                for (CastItem item : items) {
+                    int a = item.getId();
+                    names.put(a, item.getName());
+                    if(side.actorParent.containsKey(a)) continue;
+                    side.actorParent.put(a, movies[i]);
+                    if(n == next.length) next = Arrays.copyOf(next, n * 2);
+                    next[n++] = a;
+                    if(meet == NONE && other.actorParent.containsKey(a)) meet = a;
+                }
+            }
+            side.frontier = Arrays.copyOf(next, n);
+            side.depth++;
+            if(meet != NONE) return path(fwd, bwd, meet, NONE);
+        }
+        return Separation.notFound(requests, false);
+    }
+
+    /**
+     * Counts the ids not cached yet as requests, unless they exceed the budget.
+     */
+    private boolean spend(int[] ids, IntPredicate cached) {
+        int n = 0;
+        for (int id : ids) if(!cached.test(id)) n++;
+        if(requests + n > maxRequests) return false;
+        requests += n;
+        return true;
+    }
+
+    /**
+     * Joins the chains of both sides at the actor or the movie they share.
+     */
+    private Separation path(Side fwd, Side bwd, int actor, int movie) {
+        Deque<Integer> actors = new ArrayDeque<>(), movies = new ArrayDeque<>();
+        if(movie != NONE) {
+            movies.add(movie);
+            walk(fwd, fwd.movieParent.get(movie), actors, movies, true);
+            walk(bwd, bwd.movieParent.get(movie), actors, movies, false);
+        } else {
+            walk(fwd, actor, actors, movies, true);
+            Integer m = bwd.actorParent.get(actor);
+            if(m != NONE) {
+                movies.addLast(m);
+                walk(bwd, bwd.movieParent.get(m), actors, movies, false);
+            }
+        }
+        int[] actorIds = new int[actors.size()], movieIds = new int[movies.size()];
+        String[] actorNames = new String[actorIds.length], movieTitles = new String[movieIds.length];
+        Iterator<Integer> it = actors.iterator();
+        for (int i = 0; i < actorIds.length; i++) actorIds[i] = it.next();
+        it = movies.iterator();
+        for (int i = 0; i < movieIds.length; i++) {
+            movieIds[i] = it.next();
+            movieTitles[i] = titles.get(movieIds[i]);
+            // Actors met only through filmographies are named by the cast of their movie, within budget
+            boolean unnamed = !names.containsKey(actorIds[i]) || !names.containsKey(actorIds[i + 1]);
+            if(unnamed && spend(new int[]{movieIds[i]}, movs::isCastCached))
+                for (CastItem item : movs.getMovieCast(movieIds[i])) names.put(item.getId(), item.getName());
+        }
+        for (int i = 0; i < actorIds.length; i++) actorNames[i] = names.get(actorIds[i]);
+        return new Separation(actorIds, actorNames, movieIds, movieTitles, requests, false);
+    }
+
+    /**
+     * Adds the chain from actor back to the root of side, at the front
+     * of the deques for the forward side and at their back otherwise.
+     */
+    private static void walk(Side side, int actor, Deque<Integer> actors, Deque<Integer> movies, boolean front) {
+        for (int a = actor; ; ) {
+            if(front) actors.addFirst(a);
+            else actors.addLast(a);
+            int m = side.actorParent.get(a);
+            if(m == NONE) return;
+            if(front) movies.addFirst(m);
+            else movies.addLast(m);
+            a = side.movieParent.get(m);
+        }
+    }
+}
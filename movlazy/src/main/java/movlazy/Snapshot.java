@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movlazy;
+
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.model.Actor;
+import movlazy.model.CastItem;
+import movlazy.model.Movie;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Binary format of MovService snapshots:
+ * <pre>
+ *     snapshot := MAGIC VERSION record* END
+ *     record   := MOVIE movie | CAST movieId count castItem* | ACTOR actor
+ * </pre>
+ * Integers and doubles are written as by DataOutput and strings as their
+ * UTF-8 length followed by their bytes, or -1 for null. Records are written
+ * and read one at a time, so neither side holds the whole snapshot in memory.
+ */
+class Snapshot {
+    static final int MAGIC = 0x4D4F5653; // "MOVS"
+    static final int VERSION = 1;
+    private static final byte END = 0, MOVIE = 1, CAST = 2, ACTOR = 3;
+
+    /**
+     * Receives the records read from a snapshot, as DTOs.
+     */
+    interface Visitor {
+        void movie(MovieDto mov);
+        void cast(int movieId, CastItemDto[] cast);
+        void actor(PersonDto actor);
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    static void writeEnd(DataOutputStream out) throws IOException {
+        out.writeByte(END);
+    }
+
+    static void write(DataOutputStream out, Movie mov) throws IOException {
+        out.writeByte(MOVIE);
+        out.writeInt(mov.getId());
+        writeString(out, mov.getOriginalTitle());
+        writeString(out, mov.getTagline());
+        writeString(out, mov.getOverview());
+        out.writeDouble(mov.getVoteAverage());
+        writeString(out, mov.getReleaseDate());
+    }
+
+    static void write(DataOutputStream out, int movieId, List<CastItem> cast) throws IOException {
+        out.writeByte(CAST);
+        out.writeInt(movieId);
+        out.writeInt(cast.size());
+        for (CastItem item : cast) {
+            out.writeInt(item.getId());
+            out.writeInt(item.getMovieId());
+            writeString(out, item.getCharacter());
+            writeString(out, item.getName());
+        }
+    }
+
+    static void write(DataOutputStream out, Actor actor) throws IOException {
+        out.writeByte(ACTOR);
+        out.writeInt(actor.getId());
+        writeString(out, actor.getName());
+        writeString(out, actor.getPlaceOfBirth());
+        writeString(out, actor.getBiography());
+    }
+
+    /**
+     * Reads every record of a snapshot into visitor. Returns the number of records.
+     */
+    static int read(DataInputStream in, Visitor visitor) throws IOException {
+        if(in.readInt() != MAGIC) throw new IOException("Not a MovService snapshot");
+        int version = in.readInt();
+        if(version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+        int records = 0;
+        for (byte tag = in.readByte(); tag != END; tag = in.readByte(), records++) {
+            switch (tag) {
+                case MOVIE:
+                    visitor.movie(new MovieDto(
+                            in.readInt(),
+                            readString(in),
+                            readString(in),
+                            readString(in),
+                            in.readDouble(),
+                            readString(in)));
+                    break;
+                case CAST:
+                    int movieId = in.readInt();
+                    CastItemDto[] cast = new CastItemDto[in.readInt()];
+                    for (int i = 0; i < cast.length; i++)
+                        cast[i] = new CastItemDto(in.readInt(), in.readInt(), readString(in), readString(in));
+                    visitor.cast(movieId, cast);
+                    break;
+                case ACTOR:
+                    visitor.actor(new PersonDto(in.readInt(), readString(in), readString(in), readString(in)));
+                    break;
+                default:
+                    throw new IOException("Corrupted snapshot: unknown record " + tag);
+            }
+        }
+        return records;
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if(str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
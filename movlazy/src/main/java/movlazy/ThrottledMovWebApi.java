@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package movlazy;
+
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.dto.SearchDto;
+import movlazy.dto.SearchItemDto;
+import util.IRequest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * MovWebApi bounding the number of concurrent requests to each endpoint.
+ * Callers beyond the limit of an endpoint block until a request to that
+ * endpoint finishes. Endpoints without a limit are not bounded.
+ */
+public class ThrottledMovWebApi extends MovWebApi {
+
+    private final Map<Endpoint, Semaphore> permits = new EnumMap<>(Endpoint.class);
+
+    public ThrottledMovWebApi(IRequest req, Map<Endpoint, Integer> maxConcurrency) {
+        super(req);
+        maxConcurrency.forEach((endpoint, max) -> permits.put(endpoint, new Semaphore(max, true)));
+    }
+
+    public ThrottledMovWebApi(IRequest req, int maxConcurrency) {
+        super(req);
+        for (Endpoint endpoint : Endpoint.values()) permits.put(endpoint, new Semaphore(maxConcurrency, true));
+    }
+
+    @Override
+    public SearchDto searchPage(String title, int page) {
+        return throttle(Endpoint.SEARCH, () -> super.searchPage(title, page));
+    }
+
+    @Override
+    public MovieDto getMovie(int id) {
+        return throttle(Endpoint.MOVIE, () -> super.getMovie(id));
+    }
+
+    @Override
+    public byte[] getMovieJson(int id) {
+        return throttle(Endpoint.MOVIE, () -> super.getMovieJson(id));
+    }
+
+    @Override
+    public CastItemDto[] getMovieCast(int movieId) {
+        return throttle(Endpoint.MOVIE_CREDITS, () -> super.getMovieCast(movieId));
+    }
+
+    @Override
+    public PersonDto getPerson(int personId) {
+        return throttle(Endpoint.PERSON, () -> super.getPerson(personId));
+    }
+
+    @Override
+    public byte[] getPersonJson(int personId) {
+        return throttle(Endpoint.PERSON, () -> super.getPersonJson(personId));
+    }
+
+    @Override
+    public SearchItemDto[] getPersonCreditsCast(int personId) {
+        return throttle(Endpoint.PERSON_CREDITS, () -> super.getPersonCreditsCast(personId));
+    }
+
+    private <T> T throttle(Endpoint endpoint, Supplier<T> req) {
+        Semaphore sem = permits.get(endpoint);
+        if(sem == null) return req.get();
+        sem.acquireUninterruptibly();
+        try {
+            return req.get();
+        } finally {
+            sem.release();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy;
+
+import movlazy.model.SearchItem;
+import util.ConcurrentIntHashMap;
+import util.IntSets;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted index of movie titles, from tokens to movie ids.
+ *
+ * Titles are split into lower case tokens of letters and digits, with
+ * accents removed, so "Amélie" is found by "ame". A query matches the movies
+ * having, for each of its tokens, some token starting with it. Matches are
+ * ranked by vote average.
+ *
+ * Movies are added incrementally, as they are fetched, and a movie added
+ * again with other titles, e.g. its original title, is found by any of them.
+ * Searches never block, seeing each add either fully or partially done.
+ * Beyond maxSize movies, the least recently added ones are removed, so the
+ * index stays bounded however long the service runs. Postings are sorted
+ * int sets, replaced on write, as writes are far less frequent than reads.
+ *
+ * Only the id, title and vote average of each movie are kept, not the added
+ * SearchItem, so the index never holds on to movies or their suppliers.
+ * Results are made by the given factory, e.g. reusing items still in use.
+ */
+public class TitleIndex {
+    private static final Comparator<Entry> BY_VOTE =
+            Comparator.comparingDouble((Entry e) -> e.vote).reversed().thenComparingInt(e -> e.id);
+
+    private final ConcurrentSkipListMap<String, int[]> postings = new ConcurrentSkipListMap<>();
+    private final ConcurrentIntHashMap<Entry> entries = new ConcurrentIntHashMap<>();
+    /**
+     * Entries from the least to the most recently added, guarded by this.
+     */
+    private final LinkedHashMap<Integer, Entry> order = new LinkedHashMap<>();
+    private final int maxSize;
+    private final ItemFactory items;
+
+    /**
+     * Makes the SearchItem of an indexed movie, for search results.
+     */
+    @FunctionalInterface
+    public interface ItemFactory {
+        SearchItem item(int id, String title, double voteAverage);
+    }
+
+    /**
+     * Results are SearchItems without release date nor details.
+     */
+    public TitleIndex(int maxSize) {
+        this(maxSize, (id, title, vote) -> new SearchItem(id, title, null, vote, null));
+    }
+
+    public TitleIndex(int maxSize, ItemFactory items) {
+        this.maxSize = maxSize;
+        this.items = items;
+    }
+
+    /**
+     * Indexes item by the tokens of its title and of the extra titles.
+     * The latest item of a movie replaces the previous one in results.
+     */
+    public synchronized void add(SearchItem item, String... titles) {
+        int id = item.getId();
+        Entry prev = order.remove(id);
+        Set<String> tokens = new LinkedHashSet<>();
+        if(prev != null) tokens.addAll(Arrays.asList(prev.tokens));
+        List<String> titleTokens = new ArrayList<>(tokenize(item.getTitle()));
+        for (String title : titles) titleTokens.addAll(tokenize(title));
+        int[] ids = {id};
+        for (String token : titleTokens)
+            if(tokens.add(token)) postings.merge(token, ids, IntSets::union); // Only tokens not yet posted
+        Entry entry = new Entry(id, item.getTitle(), item.getVoteAverage(), tokens.toArray(new String[0]));
+        entries.put(id, entry);
+        order.put(id, entry);
+        Iterator<Entry> eldest = order.values().iterator();
+        while(order.size() > maxSize) {
+            remove(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private void remove(Entry entry) {
+        int[] ids = {entry.id};
+        entries.remove(entry.id);
+        for (String token : entry.tokens)
+            postings.computeIfPresent(token, (t, set) -> {
+                int[] rest = IntSets.difference(set, ids);
+                return rest.length == 0 ? null : rest;
+            });
+    }
+
+    /**
+     * Returns up to limit movies matching query, best voted first.
+     */
+    public List<SearchItem> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if(tokens.isEmpty()) return Collections.emptyList();
+        int[] ids = null;
+        for (String token : tokens) {
+            int[] matches = prefixMatches(token);
+            ids = ids == null ? matches : IntSets.intersect(ids, matches);
+            if(ids.length == 0) return Collections.emptyList();
+        }
+        List<Entry> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Entry entry = entries.get(id);
+            if(entry != null) found.add(entry);
+        }
+        found.sort(BY_VOTE);
+        int n = Math.min(limit, found.size());
+        List<SearchItem> res = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Entry entry = found.get(i);
+            res.add(items.item(entry.id, entry.title, entry.vote));
+        }
+        return res;
+    }
+
+    private int[] prefixMatches(String prefix) {
+        int[] ids = IntSets.EMPTY;
+        for (int[] set : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values())
+            ids = IntSets.union(ids, set);
+        return ids;
+    }
+
+    /**
+     * Number of indexed movies.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Splits text in lower case tokens of letters and digits, without accents.
+     */
+    public static List<String> tokenize(String text) {
+        if(text == null || text.isEmpty()) return Collections.emptyList();
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : plain.split("[^\\p{L}\\p{N}]+"))
+            if(!token.isEmpty()) tokens.add(token);
+        return tokens;
+    }
+
+    private static class Entry {
+        final int id;
+        final String title;
+        final double vote;
+        final String[] tokens;
+
+        Entry(int id, String title, double vote, String[] tokens) {
+            this.id = id;
+            this.title = title;
+            this.vote = vote;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy.columnar;
+
+import movlazy.crawler.Crawler;
+import movlazy.dto.SearchItemDto;
+import movlazy.model.SearchItem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Search and credit results stored by column: ids, vote averages and
+ * release years in primitive arrays, and titles as codes of a dictionary
+ * of distinct titles. A scan over a column reads contiguous memory, with
+ * no object per row, and the loops of filters and aggregates are simple
+ * enough for the JIT to unroll and vectorize.
+ *
+ * Each movie takes one row, appending it again updates its vote average.
+ * Rows are appended by one thread at a time, while any thread may query
+ * the rows appended so far. The arrays are published together in Columns,
+ * replaced on growth before the size, so a reader of the size and then of
+ * the columns sees at least that many rows, copied contents included.
+ *
+ * Also a Crawler.Visitor, storing every filmography of a crawl.
+ */
+public class SearchColumns implements Crawler.Visitor {
+
+    private static final int NO_YEAR = 0;
+
+    private volatile Columns columns;
+    private volatile int size;
+    private int maxYear;
+
+    private String[] dictionary = new String[16];
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private static final class Columns {
+        final int[] ids;
+        final double[] votes;
+        final int[] years;
+        final int[] titles;
+        /* Open addressing from ids to rows + 1, zero meaning an empty slot */
+        final int[] index;
+
+        Columns(int[] ids, double[] votes, int[] years, int[] titles, int[] index) {
+            this.ids = ids;
+            this.votes = votes;
+            this.years = years;
+            this.titles = titles;
+            this.index = index;
+        }
+    }
+
+    public SearchColumns() {
+        this(1024);
+    }
+
+    public SearchColumns(int expectedRows) {
+        int capacity = Math.max(16, expectedRows);
+        columns = new Columns(new int[capacity], new double[capacity], new int[capacity], new int[capacity],
+                new int[Integer.highestOneBit(capacity * 2 - 1) << 1]);
+    }
+
+    public synchronized void append(SearchItemDto... batch) {
+        for (SearchItemDto dto : batch)
+            add(dto.getId(), dto.getTitle(), dto.getReleaseDate(), dto.getVoteAverage());
+    }
+
+    public synchronized void append(Iterable<SearchItem> items) {
+        for (SearchItem item : items)
+            add(item.getId(), item.getTitle(), item.getReleaseDate(), item.getVoteAverage());
+    }
+
+    @Override
+    public void credits(int actorId, SearchItemDto[] movies, int depth) {
+        append(movies);
+    }
+
+    private void add(int id, String title, String releaseDate, double vote) {
+        int row = rowOf(id);
+        Columns cols = columns;
+        if(row >= 0) {
+            cols.votes[row] = vote;
+            return;
+        }
+        row = size;
+        if(row == cols.ids.length) cols = grow(cols);
+        cols.ids[row] = id;
+        cols.votes[row] = vote;
+        cols.years[row] = releaseYear(releaseDate);
+        maxYear = Math.max(maxYear, cols.years[row]);
+        cols.titles[row] = code(title);
+        indexRow(cols.index, id, row);
+        size = row + 1;
+    }
+
+    /**
+     * Publishes copies of cols with twice the capacity. Readers keep
+     * the old columns until they read a size beyond their capacity.
+     */
+    private Columns grow(Columns cols) {
+        int capacity = cols.ids.length * 2;
+        int[] ids = Arrays.copyOf(cols.ids, capacity);
+        int[] rehashed = new int[cols.index.length * 2];
+        for (int slot : cols.index) if(slot != 0) indexRow(rehashed, ids[slot - 1], slot - 1);
+        columns = new Columns(
+                ids,
+                Arrays.copyOf(cols.votes, capacity),
+                Arrays.copyOf(cols.years, capacity),
+                Arrays.copyOf(cols.titles, capacity),
+                rehashed);
+        return columns;
+    }
+
+    private static void indexRow(int[] index, int id, int row) {
+        int mask = index.length - 1;
+        int i = hash(id) & mask;
+        while(index[i] != 0) i = (i + 1) & mask;
+        index[i] = row + 1;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int code(String title) {
+        Integer code = codes.get(title);
+        if(code != null) return code;
+        int n = codes.size();
+        if(n == dictionary.length) dictionary = Arrays.copyOf(dictionary, n * 2);
+        dictionary[n] = title;
+        codes.put(title, n);
+        return n;
+    }
+
+    /**
+     * Year of a yyyy-mm-dd date, or 0 if unknown.
+     */
+    public static int releaseYear(String date) {
+        if(date == null || date.length() < 4) return NO_YEAR;
+        int year = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = date.charAt(i);
+            if(c < '0' || c > '9') return NO_YEAR;
+            year = year * 10 + c - '0';
+        }
+        return year;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Row of the movie id, or -1 if missing.
+     */
+    public int rowOf(int id) {
+        // Size first, so the columns read next hold at least its rows, and slots of later rows are skipped
+        int n = size;
+        Columns cols = columns;
+        int[] index = cols.index;
+        int[] ids = cols.ids;
+        int mask = index.length - 1;
+        for (int i = hash(id) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int row = index[i] - 1;
+            if(row < n && ids[row] == id) return row;
+        }
+        return -1;
+    }
+
+    public int getId(int row) {
+        return columns.ids[row];
+    }
+
+    public double getVoteAverage(int row) {
+        return columns.votes[row];
+    }
+
+    /**
+     * Release year of the movie in row, or 0 if unknown.
+     */
+    public int getReleaseYear(int row) {
+        return columns.years[row];
+    }
+
+    public synchronized String getTitle(int row) {
+        return dictionary[columns.titles[row]];
+    }
+
+    /**
+     * Number of distinct titles.
+     */
+    public synchronized int getTitleCount() {
+        return codes.size();
+    }
+
+    /*
+     * Filters
+     */
+
+    public Selection all() {
+        return Selection.all(size);
+    }
+
+    public Selection voteAtLeast(double min) {
+        int n = size;
+        double[] votes = columns.votes;
+        long[] words = new long[(n + 63) >>> 6];
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6, end = Math.min(64, n - base);
+            long bits = 0;
+            for (int b = 0; b < end; b++) bits |= (votes[base + b] >= min ? 1L : 0L) << b;
+            words[w] = bits;
+        }
+        return new Selection(words, n);
+    }
+
+    /**
+     * Movies released from year from to year to, both inclusive.
+     */
+    public Selection releasedBetween(int from, int to) {
+        int n = size;
+        int[] years = columns.years;
+        long[] words = new long[(n + 63) >>> 6];
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6, end = Math.min(64, n - base);
+            long bits = 0;
+            for (int b = 0; b < end; b++) {
+                int y = years[base + b];
+                // Sign bit of either difference is set when y is out of range
+                bits |= (long) (~((y - from) | (to - y)) >>> 31) << b;
+            }
+            words[w] = bits;
+        }
+        return new Selection(words, n);
+    }
+
+    /**
+     * Movies titled exactly title, compared by dictionary code.
+     */
+    public Selection titled(String title) {
+        Integer code;
+        synchronized (this) {
+            code = codes.get(title);
+        }
+        int n = size;
+        long[] words = new long[(n + 63) >>> 6];
+        if(code == null) return new Selection(words, n);
+        int c = code;
+        int[] titles = columns.titles;
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6, end = Math.min(64, n - base);
+            long bits = 0;
+            for (int b = 0; b < end; b++) bits |= (titles[base + b] == c ? 1L : 0L) << b;
+            words[w] = bits;
+        }
+        return new Selection(words, n);
+    }
+
+    /*
+     * Aggregates
+     */
+
+    public double sumVoteAverage(Selection sel) {
+        double[] votes = columns.votes;
+        long[] words = sel.words;
+        double sum = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            if(word == 0) continue;
+            int base = w << 6;
+            if(word == -1L) {
+                for (int b = 0; b < 64; b++) sum += votes[base + b];
+            } else {
+                for (; word != 0; word &= word - 1) sum += votes[base + Long.numberOfTrailingZeros(word)];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Average of the vote averages of the selected movies, or NaN if none.
+     */
+    public double averageVote(Selection sel) {
+        return sumVoteAverage(sel) / sel.count();
+    }
+
+    public double maxVoteAverage(Selection sel) {
+        double max = Double.NEGATIVE_INFINITY;
+        double[] votes = columns.votes;
+        long[] words = sel.words;
+        for (int w = 0; w < words.length; w++)
+            for (long word = words[w]; word != 0; word &= word - 1)
+                max = Math.max(max, votes[w << 6 | Long.numberOfTrailingZeros(word)]);
+        return max;
+    }
+
+    /**
+     * Average vote of the selected movies of each release year,
+     * those of unknown year aside.
+     */
+    public SortedMap<Integer, Double> averageVoteByYear(Selection sel) {
+        Columns cols = columns;
+        int[] years = cols.years;
+        double[] votes = cols.votes;
+        long[] words = sel.words;
+        // Indexed by year itself, with unknown years summed at 0
+        double[] sums;
+        int[] counts;
+        synchronized (this) {
+            sums = new double[maxYear + 1];
+        }
+        counts = new int[sums.length];
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            int base = w << 6;
+            if(word == -1L) {
+                for (int b = 0; b < 64; b++) {
+                    int y = years[base + b];
+                    sums[y] += votes[base + b];
+                    counts[y]++;
+                }
+            } else {
+                for (; word != 0; word &= word - 1) {
+                    int row = base + Long.numberOfTrailingZeros(word);
+                    int y = years[row];
+                    sums[y] += votes[row];
+                    counts[y]++;
+                }
+            }
+        }
+        SortedMap<Integer, Double> res = new TreeMap<>();
+        for (int y = 1; y < sums.length; y++)
+            if(counts[y] > 0) res.put(y, sums[y] / counts[y]);
+        return res;
+    }
+
+    /**
+     * Ids of the selected movies, in row order.
+     */
+    public int[] ids(Selection sel) {
+        int[] rows = sel.rows();
+        int[] ids = columns.ids;
+        int[] res = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) res[i] = ids[rows[i]];
+        return res;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Set of rows of a {@link SearchColumns}, as a bitmap with one bit per
+ * row. Filters build selections 64 rows at a time and selections are
+ * combined word by word, so neither involves a branch per row.
+ */
+public class Selection {
+
+    final long[] words;
+    final int rows;
+
+    Selection(long[] words, int rows) {
+        this.words = words;
+        this.rows = rows;
+    }
+
+    /**
+     * Every one of the first rows rows.
+     */
+    static Selection all(int rows) {
+        long[] words = new long[(rows + 63) >>> 6];
+        Arrays.fill(words, -1L);
+        if((rows & 63) != 0) words[words.length - 1] = (1L << rows) - 1;
+        return new Selection(words, rows);
+    }
+
+    public boolean contains(int row) {
+        return row < rows && (words[row >>> 6] & 1L << row) != 0;
+    }
+
+    /**
+     * Rows in both selections, up to the rows of the smaller one.
+     */
+    public Selection and(Selection other) {
+        int n = Math.min(words.length, other.words.length);
+        long[] res = new long[n];
+        for (int i = 0; i < n; i++) res[i] = words[i] & other.words[i];
+        return new Selection(res, Math.min(rows, other.rows));
+    }
+
+    /**
+     * Rows in any of both selections.
+     */
+    public Selection or(Selection other) {
+        Selection big = words.length >= other.words.length ? this : other;
+        Selection small = big == this ? other : this;
+        long[] res = big.words.clone();
+        for (int i = 0; i < small.words.length; i++) res[i] |= small.words[i];
+        return new Selection(res, Math.max(rows, other.rows));
+    }
+
+    /**
+     * Rows not in this selection, among the same rows.
+     */
+    public Selection not() {
+        Selection all = all(rows);
+        long[] res = new long[words.length];
+        for (int i = 0; i < res.length; i++) res[i] = ~words[i] & all.words[i];
+        return new Selection(res, rows);
+    }
+
+    public int count() {
+        int n = 0;
+        for (long word : words) n += Long.bitCount(word);
+        return n;
+    }
+
+    /**
+     * The selected rows, in ascending order.
+     */
+    public int[] rows() {
+        int[] res = new int[count()];
+        int n = 0;
+        for (int i = 0; i < words.length; i++)
+            for (long word = words[i]; word != 0; word &= word - 1)
+                res[n++] = i << 6 | Long.numberOfTrailingZeros(word);
+        return res;
+    }
+}
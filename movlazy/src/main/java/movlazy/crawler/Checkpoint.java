@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy.crawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of Crawler checkpoints:
+ * <pre>
+ *     checkpoint := MAGIC VERSION requests count node* count movieId* count actorId*
+ *     node       := kind id depth
+ * </pre>
+ * Nodes are those pending and ids those of visited movies and actors.
+ * Values are written as by DataOutput, with kind as the ordinal byte.
+ */
+class Checkpoint {
+    static final int MAGIC = 0x4D4F5643; // "MOVC"
+    static final int VERSION = 1;
+
+    long requests;
+    List<Crawler.Node> pending;
+    int[] doneMovies;
+    int[] doneActors;
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(requests);
+        out.writeInt(pending.size());
+        for (Crawler.Node node : pending) {
+            out.writeByte(node.kind.ordinal());
+            out.writeInt(node.id);
+            out.writeInt(node.depth);
+        }
+        writeInts(out, doneMovies);
+        writeInts(out, doneActors);
+    }
+
+    static Checkpoint read(DataInputStream in) throws IOException {
+        if(in.readInt() != MAGIC) throw new IOException("Not a Crawler checkpoint");
+        int version = in.readInt();
+        if(version != VERSION) throw new IOException("Unsupported checkpoint version " + version);
+        Checkpoint cp = new Checkpoint();
+        cp.requests = in.readLong();
+        int count = in.readInt();
+        cp.pending = new ArrayList<>(count);
+        Crawler.Kind[] kinds = Crawler.Kind.values();
+        for (int i = 0; i < count; i++) {
+            int kind = in.readByte();
+            if(kind < 0 || kind >= kinds.length) throw new IOException("Corrupted checkpoint: unknown kind " + kind);
+            cp.pending.add(new Crawler.Node(kinds[kind], in.readInt(), in.readInt()));
+        }
+        cp.doneMovies = readInts(in);
+        cp.doneActors = readInts(in);
+        return cp;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) out.writeInt(id);
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] ids = new int[in.readInt()];
+        for (int i = 0; i < ids.length; i++) ids[i] = in.readInt();
+        return ids;
+    }
+}
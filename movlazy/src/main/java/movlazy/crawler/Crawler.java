@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package movlazy.crawler;
+
+import movlazy.MovWebApi;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.NotFoundException;
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.dto.SearchItemDto;
+import util.ConcurrentIntHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Walks the graph of movies and actors from a few seeds, nearest nodes
+ * first: a movie leads to the actors of its cast and an actor to the
+ * movies of its filmography. Every node is fetched once, by a pool of
+ * workers sharing a frontier, so the walk goes as fast as the upstream
+ * lets it rather than one round-trip after the other.
+ *
+ * <pre>{@code
+ *     new Crawler(api, visitor)
+ *         .maxDepth(3)
+ *         .maxRequests(10_000)
+ *         .maxInFlight(Endpoint.PERSON_CREDITS, 4)
+ *         .checkpoint(file, 100)
+ *         .addMovie(860)
+ *         .run();
+ * }</pre>
+ *
+ * A checkpoint holds the visited ids and the pending nodes, thus a crawler
+ * resumed from it goes on where the previous one stopped, whether it ran
+ * out of budget or crashed, refetching at most the nodes that were in flight.
+ */
+public class Crawler {
+
+    public enum Kind { MOVIE, ACTOR }
+
+    /**
+     * Receives what the crawler fetches, on its worker threads,
+     * along with the depth of the node from its seed.
+     */
+    public interface Visitor {
+        default void movie(MovieDto mov, int depth) { }
+        default void cast(int movieId, CastItemDto[] cast, int depth) { }
+        default void actor(PersonDto actor, int depth) { }
+        default void credits(int actorId, SearchItemDto[] movies, int depth) { }
+    }
+
+    static final class Node implements Comparable<Node> {
+        final Kind kind;
+        final int id;
+        final int depth;
+        final int failures;
+
+        Node(Kind kind, int id, int depth) {
+            this(kind, id, depth, 0);
+        }
+
+        Node(Kind kind, int id, int depth, int failures) {
+            this.kind = kind;
+            this.id = id;
+            this.depth = depth;
+            this.failures = failures;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Integer.compare(depth, other.depth);
+        }
+    }
+
+    /**
+     * A failed node waiting to be queued again on the frontier.
+     */
+    private static final class Retry implements Delayed {
+        final Node node;
+        final long dueAt;
+
+        Retry(Node node, long delayNanos) {
+            this.node = node;
+            this.dueAt = System.nanoTime() + delayNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private final MovWebApi api;
+    private final Visitor visitor;
+    private final Map<Endpoint, Semaphore> permits = new EnumMap<>(Endpoint.class);
+    private int workers = 16;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxAttempts = 3;
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    private long maxRequests = Long.MAX_VALUE;
+    private boolean details = true;
+    private Path checkpointFile;
+    private int checkpointEvery;
+
+    /*
+     * A visited id maps to false while its node is pending or given up and to
+     * true once done. Pending nodes are those queued on the frontier or in flight,
+     * and given up nodes those failing maxAttempts times in this run. Nodes waiting
+     * to be retried are pending too, delayed in retries. Workers move
+     * nodes between states under the read lock, so a checkpoint taken under the
+     * write lock sees every node either pending, given up or done.
+     */
+    private final Map<Kind, ConcurrentIntHashMap<Boolean>> visited = new EnumMap<>(Kind.class);
+    private final Set<Node> pending = ConcurrentHashMap.newKeySet();
+    private final Set<Node> givenUp = ConcurrentHashMap.newKeySet();
+    private final PriorityBlockingQueue<Node> frontier = new PriorityBlockingQueue<>();
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final ReadWriteLock state = new ReentrantReadWriteLock();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean stopped;
+
+    public Crawler(MovWebApi api, Visitor visitor) {
+        this.api = api;
+        this.visitor = visitor;
+        for (Kind kind : Kind.values()) visited.put(kind, new ConcurrentIntHashMap<>());
+    }
+
+    /**
+     * Number of worker threads, thus of nodes fetched at once. Defaults to 16.
+     */
+    public Crawler workers(int n) {
+        this.workers = n;
+        return this;
+    }
+
+    /**
+     * Nodes further than max hops from their seed are not visited. Unbounded by default.
+     */
+    public Crawler maxDepth(int max) {
+        this.maxDepth = max;
+        return this;
+    }
+
+    /**
+     * A node failing with errors other than NotFoundException is queued
+     * again, after retryBackoff, up to max attempts in all. Then it is left for a resumed crawl,
+     * kept in the checkpoint as pending. Defaults to 3.
+     */
+    public Crawler maxAttempts(int max) {
+        this.maxAttempts = max;
+        return this;
+    }
+
+    /**
+     * Delay before queueing a failed node again, doubled on each further
+     * failure of the node, so rate limiting errors are not retried straight
+     * away. Defaults to 1 second.
+     */
+    public Crawler retryBackoff(Duration delay) {
+        this.retryBackoff = delay;
+        return this;
+    }
+
+    /**
+     * Total budget of requests, across resumed runs. The crawler stops,
+     * keeping the remaining nodes pending, before exceeding it. Unbounded by default.
+     */
+    public Crawler maxRequests(long max) {
+        this.maxRequests = max;
+        return this;
+    }
+
+    /**
+     * Bounds the requests of this crawler in flight to the given endpoint,
+     * leaving room for other users of the same api. Unbounded by default.
+     */
+    public Crawler maxInFlight(Endpoint endpoint, int max) {
+        permits.put(endpoint, new Semaphore(max));
+        return this;
+    }
+
+    /**
+     * Whether to fetch the details of each movie and actor, besides the
+     * cast and the filmography leading to their neighbours. On by default.
+     */
+    public Crawler details(boolean fetch) {
+        this.details = fetch;
+        return this;
+    }
+
+    /**
+     * Checkpoints to file every n visited nodes, and when run returns.
+     */
+    public Crawler checkpoint(Path file, int n) {
+        this.checkpointFile = file;
+        this.checkpointEvery = n;
+        return this;
+    }
+
+    public Crawler addMovie(int id) {
+        return add(new Node(Kind.MOVIE, id, 0));
+    }
+
+    public Crawler addActor(int id) {
+        return add(new Node(Kind.ACTOR, id, 0));
+    }
+
+    private Crawler add(Node node) {
+        state.readLock().lock();
+        try {
+            enqueue(node);
+        } finally {
+            state.readLock().unlock();
+        }
+        return this;
+    }
+
+    private void enqueue(Node node) {
+        if(visited.get(node.kind).putIfAbsent(node.id, Boolean.FALSE) == null) {
+            pending.add(node);
+            frontier.add(node);
+        }
+    }
+
+    /**
+     * Visits nodes until there are no more within maxDepth, the budget of
+     * requests is spent or stop() is called. Returns the number of nodes
+     * visited by this run.
+     */
+    public int run() {
+        stopped = false;
+        int before = done.get();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < workers; i++) tasks.add(pool.submit(this::work));
+            for (Future<?> task : tasks) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            if(checkpointFile != null) checkpoint(checkpointFile);
+        }
+        return done.get() - before;
+    }
+
+    /**
+     * Makes run() return once the nodes in flight are done.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private Void work() throws InterruptedException {
+        while(!stopped) {
+            for (Retry due; (due = retries.poll()) != null; ) frontier.add(due.node);
+            Node node = frontier.poll(10, TimeUnit.MILLISECONDS);
+            if(node == null) {
+                if(pending.isEmpty()) return null;
+                continue;
+            }
+            int cost = details ? 2 : 1;
+            if(requests.addAndGet(cost) > maxRequests) {
+                requests.addAndGet(-cost);
+                frontier.add(node);
+                stopped = true;
+                return null;
+            }
+            visit(node);
+        }
+        return null;
+    }
+
+    /**
+     * Fetches everything about node before telling the visitor, so a node
+     * retried after a failure is never reported twice.
+     */
+    private void visit(Node node) {
+        List<Node> next = new ArrayList<>();
+        try {
+            if(node.kind == Kind.MOVIE) {
+                MovieDto mov = details ? request(Endpoint.MOVIE, api::getMovie, node.id) : null;
+                CastItemDto[] cast = request(Endpoint.MOVIE_CREDITS, api::getMovieCast, node.id);
+                if(mov != null) visitor.movie(mov, node.depth);
+                visitor.cast(node.id, cast, node.depth);
+                for (CastItemDto item : cast) next.add(new Node(Kind.ACTOR, item.getId(), node.depth + 1));
+            } else {
+                PersonDto actor = details ? request(Endpoint.PERSON, api::getPerson, node.id) : null;
+                SearchItemDto[] credits = request(Endpoint.PERSON_CREDITS, api::getPersonCreditsCast, node.id);
+                if(actor != null) visitor.actor(actor, node.depth);
+                visitor.credits(node.id, credits, node.depth);
+                for (SearchItemDto item : credits) next.add(new Node(Kind.MOVIE, item.getId(), node.depth + 1));
+            }
+        } catch (NotFoundException e) {
+            next.clear();
+        } catch (RuntimeException e) {
+            failed(node);
+            return;
+        }
+        state.readLock().lock();
+        try {
+            if(node.depth < maxDepth) for (Node n : next) enqueue(n);
+            visited.get(node.kind).put(node.id, Boolean.TRUE);
+            pending.remove(node);
+        } finally {
+            state.readLock().unlock();
+        }
+        int n = done.incrementAndGet();
+        if(checkpointFile != null && checkpointEvery > 0 && n % checkpointEvery == 0)
+            checkpoint(checkpointFile);
+    }
+
+    /**
+     * Queues node again after its backoff, unless it failed maxAttempts times.
+     * Either way it stays visited, thus it is not queued twice when reached again.
+     */
+    private void failed(Node node) {
+        failures.incrementAndGet();
+        Node retry = new Node(node.kind, node.id, node.depth, node.failures + 1);
+        state.readLock().lock();
+        try {
+            pending.remove(node);
+            if(retry.failures < maxAttempts) {
+                pending.add(retry);
+                retries.add(new Retry(retry, retryBackoff.toNanos() << Math.min(retry.failures - 1, 16)));
+            } else {
+                givenUp.add(retry);
+            }
+        } finally {
+            state.readLock().unlock();
+        }
+    }
+
+    private <T> T request(Endpoint endpoint, IntFunction<T> req, int id) {
+        Semaphore sem = permits.get(endpoint);
+        if(sem == null) return req.apply(id);
+        sem.acquireUninterruptibly();
+        try {
+            return req.apply(id);
+        } finally {
+            sem.release();
+        }
+    }
+
+    /**
+     * Writes the state of the crawl to file, aside first and then moved
+     * into place, so a crash never leaves a truncated checkpoint behind.
+     * Workers may keep fetching meanwhile.
+     */
+    public synchronized void checkpoint(Path file) {
+        Checkpoint cp = new Checkpoint();
+        state.writeLock().lock();
+        try {
+            cp.requests = requests.get();
+            cp.pending = new ArrayList<>(pending);
+            cp.pending.addAll(givenUp);
+            cp.doneMovies = doneIds(Kind.MOVIE);
+            cp.doneActors = doneIds(Kind.ACTOR);
+        } finally {
+            state.writeLock().unlock();
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try(DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                cp.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteAfterFailure(tmp, e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            deleteAfterFailure(tmp, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the partial checkpoint of a failed write, keeping any failure
+     * to do so along with the original one.
+     */
+    private static void deleteAfterFailure(Path tmp, Throwable failure) {
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private int[] doneIds(Kind kind) {
+        List<Integer> ids = new ArrayList<>();
+        visited.get(kind).forEachInt((isDone, id) -> {
+            if(isDone) ids.add(id);
+        });
+        int[] res = new int[ids.size()];
+        for (int i = 0; i < res.length; i++) res[i] = ids.get(i);
+        return res;
+    }
+
+    /**
+     * Restores the state of a checkpoint, before run().
+     */
+    public Crawler resume(Path file) {
+        Checkpoint cp;
+        try(DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            cp = Checkpoint.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        state.writeLock().lock();
+        try {
+            requests.addAndGet(cp.requests);
+            for (int id : cp.doneMovies) visited.get(Kind.MOVIE).put(id, Boolean.TRUE);
+            for (int id : cp.doneActors) visited.get(Kind.ACTOR).put(id, Boolean.TRUE);
+            for (Node node : cp.pending) enqueue(node);
+        } finally {
+            state.writeLock().unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Number of movies and actors visited, including those of resumed checkpoints.
+     */
+    public int getVisited() {
+        return doneIds(Kind.MOVIE).length + doneIds(Kind.ACTOR).length;
+    }
+
+    /**
+     * Number of nodes found and not visited yet, including those given up.
+     */
+    public int getPending() {
+        return pending.size() + givenUp.size();
+    }
+
+    /**
+     * Number of requests made, including those of resumed checkpoints.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Number of visits failed with errors other than NotFoundException,
+     * retried or not.
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+}
@@ -4,10 +4,16 @@ import movlazy.dto.SearchItemDto;
 
 public class SearchDto {
     private final SearchItemDto[] results, cast;
+    private final int total_pages;
 
     public SearchDto(SearchItemDto[] results, SearchItemDto[] cast) {
+        this(results, cast, 0);
+    }
+
+    public SearchDto(SearchItemDto[] results, SearchItemDto[] cast, int total_pages) {
         this.results = results;
         this.cast = cast;
+        this.total_pages = total_pages;
     }
 
     public SearchItemDto[] getResults() {
@@ -17,4 +23,8 @@ public class SearchDto {
     public SearchItemDto[] getCast() {
         return cast;
     }
+
+    public int getTotalPages() {
+        return total_pages;
+    }
 }
@@ -70,10 +70,10 @@ public class Movie {
         return "Movie{" +
                 "id=" + id +
                 ", original_title='" + original_title + '\'' +
-                ", tagline='" + tagline + '\'' +
-                ", overview='" + overview + '\'' +
+                ", tagline='" + getTagline() + '\'' +
+                ", overview='" + getOverview() + '\'' +
                 ", vote_average=" + vote_average +
-                ", release_date='" + release_date + '\'' +
+                ", release_date='" + getReleaseDate() + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Thread-safe map from int keys to non-null values, striped over segments,
+ * each one an {@link IntHashMap} guarded by its own StampedLock.
+ *
+ * Reads are lock-free in the common case: they probe the segment under an
+ * optimistic stamp and only take the read lock if a write interleaved.
+ * Writes to distinct segments do not contend.
+ *
+ * It is also a ConcurrentMap of Integer keys, for code written against that
+ * interface, such as a {@link util.cache.Cache}; keys are then unboxed on
+ * each call, but never stored boxed. Iterators are weakly consistent, seeing
+ * each segment as it was when the iteration reached it.
+ */
+public class ConcurrentIntHashMap<V> extends AbstractMap<Integer, V> implements ConcurrentMap<Integer, V> {
+
+    private final Segment<V>[] segments;
+    private final int shift;
+
+    public ConcurrentIntHashMap() {
+        this(16, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentIntHashMap(int expectedSize, int concurrency) {
+        int n = Integer.highestOneBit(Math.max(1, concurrency) - 1) << 1;
+        if(n == 0) n = 1;
+        this.segments = (Segment<V>[]) new Segment<?>[n];
+        this.shift = 32 - Integer.numberOfTrailingZeros(n);
+        for (int i = 0; i < n; i++) segments[i] = new Segment<>(Math.max(4, expectedSize / n));
+    }
+
+    private Segment<V> segmentOf(int key) {
+        // High bits pick the segment, low bits the slot within it
+        return shift == 32 ? segments[0] : segments[IntHashMap.hash(key) >>> shift];
+    }
+
+    public V get(int key) {
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.tryOptimisticRead();
+        if(stamp != 0) {
+            V val = seg.map.get(key);
+            if(seg.validate(stamp)) return val;
+        }
+        stamp = seg.readLock();
+        try {
+            return seg.map.get(key);
+        } finally {
+            seg.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public V put(int key, V val) {
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.writeLock();
+        try {
+            return seg.map.put(key, val);
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    public V putIfAbsent(int key, V val) {
+        Objects.requireNonNull(val);
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.writeLock();
+        try {
+            V prev = seg.map.get(key);
+            if(prev == null) seg.map.put(key, val);
+            return prev;
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(int key) {
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.writeLock();
+        try {
+            return seg.map.remove(key);
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes key only if mapped to val.
+     */
+    public boolean remove(int key, Object val) {
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.writeLock();
+        try {
+            V prev = seg.map.get(key);
+            if(prev == null || !prev.equals(val)) return false;
+            seg.map.remove(key);
+            return true;
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Maps key to newVal only if currently mapped to oldVal.
+     */
+    public boolean replace(int key, V oldVal, V newVal) {
+        Objects.requireNonNull(newVal);
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.writeLock();
+        try {
+            V prev = seg.map.get(key);
+            if(prev == null || !prev.equals(oldVal)) return false;
+            seg.map.put(key, newVal);
+            return true;
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    public V replace(int key, V val) {
+        Objects.requireNonNull(val);
+        Segment<V> seg = segmentOf(key);
+        long stamp = seg.writeLock();
+        try {
+            return seg.map.containsKey(key) ? seg.map.put(key, val) : null;
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Performs action on each entry, one segment at a time, under its read lock.
+     */
+    public void forEachInt(ObjIntConsumer<V> action) {
+        for (Segment<V> seg : segments) {
+            long stamp = seg.readLock();
+            try {
+                seg.map.forEachInt(action);
+            } finally {
+                seg.unlockRead(stamp);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<V> seg : segments) {
+            long stamp = seg.readLock();
+            try {
+                size += seg.map.size();
+            } finally {
+                seg.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<V> seg : segments) {
+            long stamp = seg.writeLock();
+            try {
+                seg.map.clear();
+            } finally {
+                seg.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /*
+     * ConcurrentMap<Integer, V>
+     */
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(Integer key, V val) {
+        return put((int) key, val);
+    }
+
+    @Override
+    public V putIfAbsent(Integer key, V val) {
+        return putIfAbsent((int) key, val);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer ? remove((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object val) {
+        return key instanceof Integer && remove((int) (Integer) key, val);
+    }
+
+    @Override
+    public boolean replace(Integer key, V oldVal, V newVal) {
+        return replace((int) key, oldVal, newVal);
+    }
+
+    @Override
+    public V replace(Integer key, V val) {
+        return replace((int) key, val);
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, V>>() {
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentIntHashMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Copies the entries of one segment at a time.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<Integer, V>> {
+        private int next;
+        private Iterator<Map.Entry<Integer, V>> curr = new ArrayList<Map.Entry<Integer, V>>().iterator();
+        private Map.Entry<Integer, V> last;
+
+        @Override
+        public boolean hasNext() {
+            while(!curr.hasNext() && next < segments.length) {
+                List<Map.Entry<Integer, V>> entries = new ArrayList<>();
+                Segment<V> seg = segments[next++];
+                long stamp = seg.readLock();
+                try {
+                    seg.map.forEachInt((val, key) -> entries.add(new SimpleImmutableEntry<>(key, val)));
+                } finally {
+                    seg.unlockRead(stamp);
+                }
+                curr = entries.iterator();
+            }
+            return curr.hasNext();
+        }
+
+        @Override
+        public Map.Entry<Integer, V> next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            return last = curr.next();
+        }
+
+        @Override
+        public void remove() {
+            if(last == null) throw new IllegalStateException();
+            ConcurrentIntHashMap.this.remove(last.getKey(), last.getValue());
+            last = null;
+        }
+    }
+
+    private static class Segment<V> extends StampedLock {
+        private static final long serialVersionUID = 1L;
+
+        final IntHashMap<V> map;
+
+        Segment(int expectedSize) {
+            this.map = new IntHashMap<>(expectedSize);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Map from int keys to non-null values, without boxing the keys.
+ *
+ * Keys and values are kept in two parallel arrays with open addressing
+ * and linear probing, so a lookup touches a few adjacent slots rather than
+ * chasing an Integer and a HashMap.Node per entry. An empty slot is one
+ * with a null value, thus any int, including 0, may be a key. Removals
+ * shift back the following entries of the same run, leaving no tombstones.
+ *
+ * Not thread-safe, see {@link ConcurrentIntHashMap}.
+ */
+public class IntHashMap<V> {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    int[] keys;
+    Object[] values;
+    private int size, threshold;
+
+    public IntHashMap() {
+        this(16);
+    }
+
+    public IntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the value of key, or null if missing.
+     * Never fails, even on arrays that are being changed by another thread,
+     * since probing stops once it has been through the whole table.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int[] ks = keys;
+        Object[] vs = values;
+        if(ks.length != vs.length) return null; // Racing with a resize
+        int mask = ks.length - 1;
+        for (int i = hash(key) & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            Object val = vs[i];
+            if(val == null) return null;
+            if(ks[i] == key) return (V) val;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps key to val, returning the previous value, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V val) {
+        if(val == null) throw new NullPointerException("Null values are not supported");
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                V prev = (V) values[i];
+                values[i] = val;
+                return prev;
+            }
+        }
+        keys[i] = key;
+        values[i] = val;
+        if(++size > threshold) resize();
+        return null;
+    }
+
+    /**
+     * Removes key, returning its value, or null if missing.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                V prev = (V) values[i];
+                shiftBack(i);
+                size--;
+                return prev;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fills the gap left at slot gap by moving back each following entry
+     * of the run that would not be reachable from its home slot otherwise.
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if(((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] ks = new int[oldKeys.length * 2];
+        Object[] vs = new Object[oldValues.length * 2];
+        int mask = ks.length - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if(oldValues[j] == null) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while(vs[i] != null) i = (i + 1) & mask;
+            ks[i] = oldKeys[j];
+            vs[i] = oldValues[j];
+        }
+        keys = ks;
+        values = vs;
+        threshold = (int) (ks.length * LOAD_FACTOR);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachInt(ObjIntConsumer<V> action) {
+        int[] ks = keys;
+        Object[] vs = values;
+        for (int i = 0; i < vs.length; i++)
+            if(vs[i] != null) action.accept((V) vs[i], ks[i]);
+    }
+}
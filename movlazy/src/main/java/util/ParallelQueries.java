@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Parallel counterparts of {@link Queries} reductions, on a ForkJoinPool.
+ */
+public class ParallelQueries {
+
+    /**
+     * Below this many items a subtask reduces sequentially.
+     */
+    private static final int MIN_SPLIT = 64;
+
+    /**
+     * Reduces src by splitting it in halves, down to a few slices per
+     * thread of pool. Each slice is accumulated into its own seed and
+     * the results of both halves are then merged by combiner, thus acc
+     * may mutate its seed. Both acc and combiner must be associative.
+     * A src without fast random access is copied to an ArrayList first.
+     */
+    public static <T, R> R reduce(
+            ForkJoinPool pool,
+            List<T> src,
+            Supplier<R> seed,
+            BiFunction<R, T, R> acc,
+            BinaryOperator<R> combiner) {
+        List<T> items = src instanceof RandomAccess ? src : new ArrayList<>(src);
+        int slice = Math.max(MIN_SPLIT, items.size() / (4 * pool.getParallelism()));
+        return pool.invoke(new Reduce<>(items, 0, items.size(), slice, seed, acc, combiner));
+    }
+
+    private static class Reduce<T, R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> src;
+        private final int from, to, slice;
+        private final Supplier<R> seed;
+        private final BiFunction<R, T, R> acc;
+        private final BinaryOperator<R> combiner;
+
+        Reduce(List<T> src, int from, int to, int slice, Supplier<R> seed, BiFunction<R, T, R> acc, BinaryOperator<R> combiner) {
+            this.src = src;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+            this.seed = seed;
+            this.acc = acc;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if(to - from <= slice) {
+                R res = seed.get();
+                for (int i = from; i < to; i++) res = acc.apply(res, src.get(i));
+                return res;
+            }
+            int mid = (from + to) >>> 1;
+            Reduce<T, R> left = new Reduce<>(src, from, mid, slice, seed, acc, combiner);
+            left.fork();
+            R right = new Reduce<>(src, mid, to, slice, seed, acc, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+}
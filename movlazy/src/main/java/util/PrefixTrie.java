@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Radix tree from string keys to values, answering the k best scored values
+ * whose key starts with a given prefix, in time proportional to the prefix.
+ *
+ * Every node keeps the top k values of its subtree, thus a completion is a
+ * walk down the prefix and a copy of that array. Nodes are immutable: put
+ * copies the nodes on the path to the key and then publishes the new root,
+ * so completions never lock nor see a partial put, while puts run one at a
+ * time. Values are identified by an id: putting an id again, under the same
+ * key, replaces its value and score, and each id shows up once in the top k.
+ * Removing an id from a key prunes the nodes left without values, so the
+ * tree only holds the keys still put.
+ */
+public class PrefixTrie<T> {
+
+    private final int k;
+    private volatile Node<T> root = new Node<>("", null, null, null, null);
+    private int size;
+
+    public PrefixTrie(int k) {
+        this.k = k;
+    }
+
+    public synchronized void put(String key, int id, double score, T value) {
+        Entry<T> entry = new Entry<>(id, score, value);
+        root = insert(root, key, 0, entry);
+    }
+
+    /**
+     * Removes the value of id under key, if any.
+     */
+    public synchronized void remove(String key, int id) {
+        Node<T> res = delete(root, key, 0, id);
+        // The root, the only node with an empty label, is never pruned
+        if(res != root) root = res != null ? res : new Node<>("", null, null, null, null);
+    }
+
+    /**
+     * Returns the values of the k best scored keys starting with prefix, best first.
+     */
+    public List<T> complete(String prefix) {
+        Node<T> node = root;
+        int pos = 0;
+        while(pos < prefix.length()) {
+            Node<T> child = node.child(prefix.charAt(pos));
+            if(child == null) return Collections.emptyList();
+            String label = child.label;
+            int n = Math.min(label.length(), prefix.length() - pos);
+            if(!label.regionMatches(0, prefix, pos, n)) return Collections.emptyList();
+            pos += n;
+            node = child;
+        }
+        Entry<T>[] top = node.top;
+        if(top == null) return Collections.emptyList();
+        List<T> res = new ArrayList<>(top.length);
+        for (Entry<T> e : top) res.add(e.value);
+        return res;
+    }
+
+    /**
+     * Number of distinct keys and ids put.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of node with entry put under key, of which
+     * the first pos chars lead to node.
+     */
+    private Node<T> insert(Node<T> node, String key, int pos, Entry<T> entry) {
+        if(pos == key.length()) {
+            Entry<T>[] own = upsert(node.own, entry);
+            return node(node.label, own, node.firsts, node.children);
+        }
+        char c = key.charAt(pos);
+        int i = node.firsts == null ? -1 : Arrays.binarySearch(node.firsts, c);
+        if(i < 0) {
+            size++;
+            Node<T> leaf = node(key.substring(pos), single(entry), null, null);
+            int at = -i - 1;
+            char[] firsts = node.firsts == null ? new char[1] : insertAt(node.firsts, at, c);
+            Node<T>[] children = node.children == null ? newArray(1) : insertAt(node.children, at, leaf);
+            firsts[at] = c;
+            children[at] = leaf;
+            return node(node.label, node.own, firsts, children);
+        }
+        Node<T> child = node.children[i];
+        String label = child.label;
+        int common = 0;
+        while(common < label.length() && pos + common < key.length()
+                && label.charAt(common) == key.charAt(pos + common)) common++;
+        if(common < label.length()) {
+            // Split the edge where the key diverges from the child's label
+            Node<T> tail = child.relabel(label.substring(common));
+            Node<T>[] midChildren = newArray(1);
+            midChildren[0] = tail;
+            child = new Node<>(label.substring(0, common), null, new char[]{tail.label.charAt(0)}, midChildren, tail.top);
+        }
+        Node<T>[] children = node.children.clone();
+        children[i] = insert(child, key, pos + common, entry);
+        return node(node.label, node.own, node.firsts, children);
+    }
+
+    /**
+     * Returns a copy of node without the entry of id under key, null if it
+     * is left without entries, or node itself if there is no such entry.
+     */
+    private Node<T> delete(Node<T> node, String key, int pos, int id) {
+        if(pos == key.length()) {
+            Entry<T>[] own = without(node.own, id);
+            if(own == node.own) return node;
+            size--;
+            return pruned(node.label, own, node.firsts, node.children);
+        }
+        int i = node.firsts == null ? -1 : Arrays.binarySearch(node.firsts, key.charAt(pos));
+        if(i < 0) return node;
+        Node<T> child = node.children[i];
+        if(!key.startsWith(child.label, pos)) return node;
+        Node<T> rest = delete(child, key, pos + child.label.length(), id);
+        if(rest == child) return node;
+        if(rest != null) {
+            Node<T>[] children = node.children.clone();
+            children[i] = rest;
+            return pruned(node.label, node.own, node.firsts, children);
+        }
+        if(node.children.length == 1) return pruned(node.label, node.own, null, null);
+        return pruned(node.label, node.own, removeAt(node.firsts, i), removeAt(node.children, i));
+    }
+
+    /**
+     * Like node, but null without entries nor children, and merged with its
+     * only child without entries of its own, as insert would have made it.
+     */
+    private Node<T> pruned(String label, Entry<T>[] own, char[] firsts, Node<T>[] children) {
+        if(label.isEmpty() || own != null) return node(label, own, firsts, children);
+        if(children == null) return null;
+        if(children.length == 1) return children[0].relabel(label + children[0].label);
+        return node(label, null, firsts, children);
+    }
+
+    private Entry<T>[] without(Entry<T>[] own, int id) {
+        if(own == null) return null;
+        for (int i = 0; i < own.length; i++) {
+            if(own[i].id == id) {
+                if(own.length == 1) return null;
+                Entry<T>[] res = newEntries(own.length - 1);
+                System.arraycopy(own, 0, res, 0, i);
+                System.arraycopy(own, i + 1, res, i, own.length - i - 1);
+                return res;
+            }
+        }
+        return own;
+    }
+
+    /**
+     * New node whose top holds the k best scored entries among its own and
+     * those on the tops of its children, each id once with its best score.
+     */
+    private Node<T> node(String label, Entry<T>[] own, char[] firsts, Node<T>[] children) {
+        List<Entry<T>> all = new ArrayList<>();
+        if(own != null) Collections.addAll(all, own);
+        if(children != null) for (Node<T> child : children) Collections.addAll(all, child.top);
+        all.sort((a, b) -> Double.compare(b.score, a.score));
+        List<Entry<T>> top = new ArrayList<>(Math.min(k, all.size()));
+        for (Entry<T> e : all) {
+            if(top.size() == k) break;
+            boolean dup = false;
+            for (Entry<T> t : top) if(t.id == e.id) { dup = true; break; }
+            if(!dup) top.add(e);
+        }
+        Entry<T>[] arr = top.toArray(newEntries(top.size()));
+        return new Node<>(label, own, firsts, children, arr);
+    }
+
+    private Entry<T>[] upsert(Entry<T>[] own, Entry<T> entry) {
+        if(own != null) {
+            for (int i = 0; i < own.length; i++) {
+                if(own[i].id == entry.id) {
+                    Entry<T>[] res = own.clone();
+                    res[i] = entry;
+                    return res;
+                }
+            }
+        }
+        size++;
+        if(own == null) return single(entry);
+        Entry<T>[] res = Arrays.copyOf(own, own.length + 1);
+        res[own.length] = entry;
+        return res;
+    }
+
+    private Entry<T>[] single(Entry<T> entry) {
+        Entry<T>[] res = newEntries(1);
+        res[0] = entry;
+        return res;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newEntries(int n) {
+        return (Entry<T>[]) new Entry<?>[n];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newArray(int n) {
+        return (Node<T>[]) new Node<?>[n];
+    }
+
+    private static char[] insertAt(char[] src, int at, char c) {
+        char[] res = new char[src.length + 1];
+        System.arraycopy(src, 0, res, 0, at);
+        System.arraycopy(src, at, res, at + 1, src.length - at);
+        res[at] = c;
+        return res;
+    }
+
+    private static char[] removeAt(char[] src, int at) {
+        char[] res = new char[src.length - 1];
+        System.arraycopy(src, 0, res, 0, at);
+        System.arraycopy(src, at + 1, res, at, res.length - at);
+        return res;
+    }
+
+    private static <T> Node<T>[] removeAt(Node<T>[] src, int at) {
+        Node<T>[] res = newArray(src.length - 1);
+        System.arraycopy(src, 0, res, 0, at);
+        System.arraycopy(src, at + 1, res, at, res.length - at);
+        return res;
+    }
+
+    private static <T> Node<T>[] insertAt(Node<T>[] src, int at, Node<T> node) {
+        Node<T>[] res = Arrays.copyOf(src, src.length + 1);
+        System.arraycopy(src, at, res, at + 1, src.length - at);
+        res[at] = node;
+        return res;
+    }
+
+    private static class Entry<T> {
+        final int id;
+        final double score;
+        final T value;
+
+        Entry(int id, double score, T value) {
+            this.id = id;
+            this.score = score;
+            this.value = value;
+        }
+    }
+
+    private static class Node<T> {
+        final String label;
+        final Entry<T>[] own;
+        final char[] firsts;
+        final Node<T>[] children;
+        final Entry<T>[] top;
+
+        Node(String label, Entry<T>[] own, char[] firsts, Node<T>[] children, Entry<T>[] top) {
+            this.label = label;
+            this.own = own;
+            this.firsts = firsts;
+            this.children = children;
+            this.top = top;
+        }
+
+        Node<T> child(char c) {
+            if(firsts == null) return null;
+            int i = Arrays.binarySearch(firsts, c);
+            return i < 0 ? null : children[i];
+        }
+
+        Node<T> relabel(String label) {
+            return new Node<>(label, own, firsts, children, top);
+        }
+    }
+}
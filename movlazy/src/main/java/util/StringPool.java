@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lossy, pool of canonical Strings, deduplicating values that
+ * repeat across many objects, such as cast characters or places of birth.
+ *
+ * Each string maps to one slot of a fixed array, by hash. If the slot holds
+ * an equal string, that one is returned and the given one may be collected;
+ * otherwise the given string takes the slot, as the last writer always
+ * wins. Thus memory is bounded by the capacity and no lock is ever taken,
+ * at the cost of duplicates surviving while values sharing a slot keep
+ * evicting each other, however frequent they are.
+ *
+ * Unlike String.intern(), pooled strings are ordinary heap objects,
+ * collected once replaced and no longer referenced.
+ */
+public class StringPool implements StringPoolMXBean {
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two.
+     */
+    public StringPool(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns a pooled string equal to str, or str itself.
+     */
+    public String intern(String str) {
+        if(str == null) return null;
+        lookups.increment();
+        int h = str.hashCode();
+        int i = (h ^ (h >>> 16)) & mask;
+        String pooled = slots.get(i);
+        if(pooled != null && (pooled == str || pooled.equals(str))) {
+            if(pooled != str) {
+                hits.increment();
+                // Same estimate as movlazy.RetainedSize: String and its array, 2 bytes per char
+                bytesSaved.add(40 + 2L * str.length());
+            }
+            return pooled;
+        }
+        slots.lazySet(i, str);
+        return str;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long n = lookups.sum();
+        return n == 0 ? 1.0 : (double) hits.sum() / n;
+    }
+
+    /**
+     * Estimated heap of the duplicates replaced by pooled strings.
+     */
+    @Override
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    @Override
+    public int getCapacity() {
+        return slots.length();
+    }
+}
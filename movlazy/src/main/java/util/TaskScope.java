@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Structured fork/join of blocking subtasks: every subtask forked in a scope
+ * finishes before the scope is closed. The first failing subtask cancels its
+ * siblings and its exception is rethrown by join().
+ *
+ * <pre>{@code
+ *     try(TaskScope scope = new TaskScope(executor)) {
+ *         Supplier<MovieDto> mov = scope.fork(() -> api.getMovie(860));
+ *         Supplier<CastItemDto[]> cast = scope.fork(() -> api.getMovieCast(860));
+ *         scope.join();
+ *         ... mov.get() ... cast.get() ...
+ *     }
+ * }</pre>
+ */
+public class TaskScope implements AutoCloseable {
+
+    private final Executor executor;
+    private final List<FutureTask<?>> tasks = new ArrayList<>();
+    private int unfinished;     // tasks not yet run to the end, guarded by tasks
+    private volatile Throwable failure;
+
+    public TaskScope(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts task on the executor and returns a Supplier of its result,
+     * which may only be called after join().
+     */
+    public <T> Supplier<T> fork(Supplier<T> task) {
+        FutureTask<T> f = new FutureTask<T>(task::get) {
+            @Override
+            protected void setException(Throwable err) {
+                // Recorded before the task completes, so join sees it as soon as get fails.
+                // Then only the siblings are cancelled, since waiting for them here would wait for itself.
+                boolean first = fail(err);
+                super.setException(err);
+                if(first) cancelAll();
+            }
+
+            @Override
+            public void run() {
+                try {
+                    super.run();
+                } finally {
+                    finished();
+                }
+            }
+        };
+        synchronized (tasks) {
+            tasks.add(f);
+            unfinished++;
+        }
+        try {
+            executor.execute(f);
+        } catch (RuntimeException e) {
+            f.cancel(false);
+            finished();
+            throw e;
+        }
+        return () -> {
+            try {
+                return f.get();
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted");
+            }
+        };
+    }
+
+    /**
+     * Waits for every forked task. Rethrows the exception of the first failed one.
+     */
+    public void join() {
+        for (FutureTask<?> f : snapshot()) {
+            try {
+                f.get();
+            } catch (ExecutionException | CancellationException e) {
+                break;
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted");
+            }
+        }
+        Throwable err = failure;
+        if(err != null) throw rethrow(err);
+    }
+
+    /**
+     * Whether some task has failed, e.g. for long running tasks to give up.
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Cancels any unfinished task and waits until every task has finished
+     * running, so none outlives the scope. An interrupt does not cut the
+     * wait short, but is kept for the caller.
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        boolean interrupted = false;
+        synchronized (tasks) {
+            while(unfinished > 0) {
+                try {
+                    tasks.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void cancelAll() {
+        for (FutureTask<?> f : snapshot()) f.cancel(true);
+    }
+
+    private void finished() {
+        synchronized (tasks) {
+            unfinished--;
+            tasks.notifyAll();
+        }
+    }
+
+    /**
+     * Keeps err unless another failure came first, returning whether it did not.
+     */
+    private synchronized boolean fail(Throwable err) {
+        if(failure != null) return false;
+        failure = err;
+        return true;
+    }
+
+    private List<FutureTask<?>> snapshot() {
+        synchronized (tasks) {
+            return new ArrayList<>(tasks);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable err) {
+        if(err instanceof RuntimeException) return (RuntimeException) err;
+        if(err instanceof Error) throw (Error) err;
+        return new RuntimeException(err);
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task, when the
+     * running JVM supports them (Java 21+), or else a cached pool of daemon threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util.arena;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap store of UTF-8 texts, in direct ByteBuffer segments.
+ *
+ * Each stored text gets a small on-heap {@link Text} handle, decoding it to a
+ * String on every get(). Handles refer to a slot of the arena directory,
+ * which holds the segment, offset and length of the text, so the bytes may
+ * be moved without touching the handles.
+ *
+ * A text is released once its handle is no longer reachable, e.g. after the
+ * Movie holding it is evicted from a cache and dropped by its users. The
+ * arena learns of it through a PhantomReference, on the next put. Segments
+ * left without live texts are dropped at once, and when released bytes
+ * outweigh the live ones, the live texts of sparse segments are compacted
+ * into the current one, so sparse segments can be dropped too.
+ */
+public class TextArena {
+    private static final int UNUSED = -1;
+
+    private final int segmentBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReferenceQueue<Text> released = new ReferenceQueue<>();
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int[] segmentLive = new int[8];
+    private int tail = -1;
+
+    // Directory, by slot
+    private int[] segmentOf = new int[64], offsetOf = new int[64], lengthOf = new int[64];
+    private Release[] releases = new Release[64];
+    private int[] freeSlots = new int[64];
+    private int freeCount, slotCount;
+
+    private long liveBytes, deadBytes, compactions;
+
+    /**
+     * @param segmentBytes size of each direct buffer. Longer texts get a segment of their own.
+     */
+    public TextArena(int segmentBytes) {
+        if(segmentBytes <= 0) throw new IllegalArgumentException("segmentBytes must be positive");
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Stores str off-heap and returns its handle, or null if str is null.
+     */
+    public Text put(String str) {
+        if(str == null) return null;
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            expunge();
+            int slot = newSlot();
+            append(slot, bytes);
+            Text text = new Text(this, slot);
+            releases[slot] = new Release(text, slot, released);
+            liveBytes += bytes.length;
+            return text;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The slot is read under the lock, while text is surely reachable,
+     * thus it cannot be released and reused meanwhile.
+     */
+    private String get(Text text) {
+        byte[] bytes;
+        lock.readLock().lock();
+        try {
+            int slot = text.slot;
+            ByteBuffer buf = segments.get(segmentOf[slot]).duplicate();
+            buf.position(offsetOf[slot]);
+            bytes = new byte[lengthOf[slot]];
+            buf.get(bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int newSlot() {
+        if(freeCount > 0) return freeSlots[--freeCount];
+        if(slotCount == segmentOf.length) {
+            int n = slotCount * 2;
+            segmentOf = Arrays.copyOf(segmentOf, n);
+            offsetOf = Arrays.copyOf(offsetOf, n);
+            lengthOf = Arrays.copyOf(lengthOf, n);
+            releases = Arrays.copyOf(releases, n);
+            freeSlots = Arrays.copyOf(freeSlots, n);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Copies bytes at the end of the tail segment, starting a new one if full.
+     */
+    private void append(int slot, byte[] bytes) {
+        ByteBuffer buf = tail < 0 ? null : segments.get(tail);
+        if(buf == null || buf.remaining() < bytes.length) {
+            buf = ByteBuffer.allocateDirect(Math.max(segmentBytes, bytes.length));
+            tail = newSegment(buf);
+        }
+        segmentOf[slot] = tail;
+        offsetOf[slot] = buf.position();
+        lengthOf[slot] = bytes.length;
+        buf.put(bytes);
+        segmentLive[tail] += bytes.length;
+    }
+
+    private int newSegment(ByteBuffer buf) {
+        int index = segments.indexOf(null);
+        if(index < 0) {
+            index = segments.size();
+            segments.add(buf);
+            if(index == segmentLive.length) segmentLive = Arrays.copyOf(segmentLive, index * 2);
+        } else {
+            segments.set(index, buf);
+        }
+        segmentLive[index] = 0;
+        return index;
+    }
+
+    /**
+     * Releases the slots of unreachable handles, then compacts if worth it.
+     */
+    private void expunge() {
+        boolean any = false;
+        for (Reference<? extends Text> ref; (ref = released.poll()) != null; any = true) {
+            int slot = ((Release) ref).slot;
+            releases[slot] = null;
+            int seg = segmentOf[slot], len = lengthOf[slot];
+            segmentOf[slot] = UNUSED;
+            freeSlots[freeCount++] = slot;
+            liveBytes -= len;
+            deadBytes += len;
+            segmentLive[seg] -= len;
+            if(segmentLive[seg] == 0 && seg != tail) dropSegment(seg);
+        }
+        if(any && deadBytes > liveBytes && deadBytes > segmentBytes) compact();
+    }
+
+    private void dropSegment(int seg) {
+        ByteBuffer buf = segments.set(seg, null);
+        deadBytes -= buf.position() - segmentLive[seg];
+        segmentLive[seg] = 0;
+    }
+
+    /**
+     * Moves the live texts of segments less than half full to the tail,
+     * dropping those segments.
+     */
+    private void compact() {
+        compactions++;
+        boolean[] sparse = new boolean[segments.size()];
+        for (int seg = 0; seg < sparse.length; seg++) {
+            ByteBuffer buf = segments.get(seg);
+            sparse[seg] = buf != null && seg != tail && segmentLive[seg] * 2 < buf.position();
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            int seg = segmentOf[slot];
+            // Segments started by this compaction are not sparse
+            if(seg == UNUSED || seg >= sparse.length || !sparse[seg]) continue;
+            ByteBuffer src = segments.get(seg).duplicate();
+            src.position(offsetOf[slot]);
+            byte[] bytes = new byte[lengthOf[slot]];
+            src.get(bytes);
+            append(slot, bytes);
+        }
+        for (int seg = 0; seg < sparse.length; seg++)
+            if(sparse[seg]) dropSegment(seg);
+    }
+
+    /*
+     * Statistics
+     */
+
+    public int getTextCount() {
+        lock.readLock().lock();
+        try {
+            return slotCount - freeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * UTF-8 bytes of the texts still reachable.
+     */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Off-heap bytes held by the segments.
+     */
+    public long getCapacityBytes() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            for (ByteBuffer buf : segments) if(buf != null) size += buf.capacity();
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCompactionCount() {
+        lock.readLock().lock();
+        try {
+            return compactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Handle of a text stored in a TextArena.
+     */
+    public static final class Text {
+        private final TextArena arena;
+        private final int slot;
+
+        private Text(TextArena arena, int slot) {
+            this.arena = arena;
+            this.slot = slot;
+        }
+
+        public String get() {
+            return arena.get(this);
+        }
+
+        @Override
+        public String toString() {
+            return get();
+        }
+    }
+
+    private static class Release extends PhantomReference<Text> {
+        final int slot;
+
+        Release(Text text, int slot, ReferenceQueue<Text> queue) {
+            super(text, queue);
+            this.slot = slot;
+        }
+    }
+}
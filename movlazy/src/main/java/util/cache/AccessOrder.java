@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+/**
+ * Doubly linked list of nodes, from the least to the most recently used.
+ */
+class AccessOrder<K, V> {
+    private final int queue;
+    private Node<K, V> head, tail;
+    long weight;
+
+    AccessOrder(int queue) {
+        this.queue = queue;
+    }
+
+    Node<K, V> first() {
+        return head;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    void addLast(Node<K, V> node) {
+        node.queue = queue;
+        node.prev = tail;
+        node.next = null;
+        if(tail == null) head = node;
+        else tail.next = node;
+        tail = node;
+        weight += node.weight;
+    }
+
+    void remove(Node<K, V> node) {
+        if(node.prev == null) head = node.next;
+        else node.prev.next = node.next;
+        if(node.next == null) tail = node.prev;
+        else node.next.prev = node.prev;
+        node.prev = node.next = null;
+        node.queue = -1;
+        weight -= node.weight;
+    }
+
+    void moveToLast(Node<K, V> node) {
+        if(node == tail) return;
+        remove(node);
+        addLast(node);
+    }
+}
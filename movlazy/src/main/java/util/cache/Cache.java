@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+import util.ConcurrentIntHashMap;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe cache loading each missing key at most once at a time.
+ *
+ * The first thread missing a key runs the loader, while other threads
+ * missing the same key wait for that load. Loads of different keys
+ * proceed in parallel. A failed load is not cached: its exception is
+ * thrown to every waiting thread and the next get retries it.
+ *
+ * A bounded cache keeps the total weight of its values, as given by a
+ * weigher, under a maximum, evicting entries with the {@link TinyLfu} policy.
+ *
+ * Entries may also expire some time after being written. Past the hard
+ * expiry an entry is reloaded as if missing. Past the soft expiry, get still
+ * returns the cached, stale, value, but starts a reload in the background
+ * that replaces it once done (stale-while-revalidate). A failed background
+ * reload keeps the stale value.
+ */
+public class Cache<K, V> {
+
+    private final ConcurrentMap<K, Node<K, V>> entries;
+    private final ToLongFunction<V> weigher;
+    private final TinyLfu<K, V> policy;
+    private final CacheStats stats = new CacheStats(this::size, this::weightedSize);
+    private long expireNanos, refreshNanos;
+    private Executor refresher;
+    private LongSupplier ticker = System::nanoTime;
+
+    /**
+     * Unbounded cache.
+     */
+    public Cache() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private Cache(ConcurrentMap<K, Node<K, V>> entries) {
+        this.entries = entries;
+        this.weigher = null;
+        this.policy = null;
+    }
+
+    /**
+     * Cache whose values weigh at most maximumWeight in total.
+     */
+    public Cache(long maximumWeight, ToLongFunction<V> weigher) {
+        this(new ConcurrentHashMap<>(), maximumWeight, weigher);
+    }
+
+    private Cache(ConcurrentMap<K, Node<K, V>> entries, long maximumWeight, ToLongFunction<V> weigher) {
+        if(maximumWeight <= 0) throw new IllegalArgumentException("maximumWeight must be positive");
+        this.entries = entries;
+        this.weigher = weigher;
+        this.policy = new TinyLfu<>(maximumWeight, node -> {
+            entries.remove(node.key, node);
+            stats.recordEviction();
+        });
+    }
+
+    /**
+     * Unbounded cache of int keys, kept unboxed in a {@link ConcurrentIntHashMap}.
+     */
+    public static <V> Cache<Integer, V> intKeyed() {
+        return new Cache<>(new ConcurrentIntHashMap<>());
+    }
+
+    /**
+     * Bounded cache of int keys, kept unboxed in a {@link ConcurrentIntHashMap}.
+     */
+    public static <V> Cache<Integer, V> intKeyed(long maximumWeight, ToLongFunction<V> weigher) {
+        return new Cache<>(new ConcurrentIntHashMap<>(), maximumWeight, weigher);
+    }
+
+    /**
+     * Entries older than duration are reloaded on the next get, as if missing.
+     */
+    public Cache<K, V> expireAfterWrite(Duration duration) {
+        this.expireNanos = duration.toNanos();
+        return this;
+    }
+
+    /**
+     * Entries older than duration are still returned, but reloaded in
+     * background, on the refresher, by the next get. A {@link RefreshExecutor}
+     * runs the reloads of the most read keys first.
+     */
+    public Cache<K, V> refreshAfterWrite(Duration duration, Executor refresher) {
+        this.refreshNanos = duration.toNanos();
+        this.refresher = refresher;
+        return this;
+    }
+
+    /**
+     * Source of time, in nanoseconds. Defaults to System::nanoTime.
+     */
+    public Cache<K, V> ticker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * Returns the value of key, loading it with loader if missing.
+     * The loader must not get the same key from this cache.
+     */
+    public V get(K key, Function<K, V> loader) {
+        while(true) {
+            Node<K, V> node = entries.get(key);
+            if(node == null) {
+                Node<K, V> fresh = new Node<>(key, new CompletableFuture<>());
+                node = entries.putIfAbsent(key, fresh);
+                if(node == null) {
+                    stats.recordMiss();
+                    return load(fresh, loader);
+                }
+            }
+            if(isExpired(node)) {
+                Node<K, V> fresh = new Node<>(key, new CompletableFuture<>());
+                if(entries.replace(key, node, fresh)) {
+                    if(policy != null) policy.remove(node);
+                    stats.recordMiss();
+                    return load(fresh, loader);
+                }
+                continue;
+            }
+            stats.recordHit();
+            V val = join(node.value);
+            node.hits++;
+            if(policy != null) policy.onAccess(node);
+            if(isStale(node)) refresh(node, loader);
+            return val;
+        }
+    }
+
+    private V load(Node<K, V> node, Function<K, V> loader) {
+        V val;
+        long start = System.nanoTime();
+        try {
+            val = loader.apply(node.key);
+        } catch (RuntimeException | Error err) {
+            stats.recordLoad(System.nanoTime() - start, false);
+            entries.remove(node.key, node);
+            node.value.completeExceptionally(err);
+            throw err;
+        }
+        stats.recordLoad(System.nanoTime() - start, true);
+        node.writeTime = ticker.getAsLong();
+        node.value.complete(val);
+        if(policy != null) policy.onInsert(node, weigher.applyAsLong(val), this::isLive);
+        return val;
+    }
+
+    /**
+     * Reloads the key of a stale node on the refresher, unless it is
+     * already being refreshed. The new node only replaces the stale
+     * one if that is still cached.
+     */
+    private void refresh(Node<K, V> stale, Function<K, V> loader) {
+        if(!stale.refreshing.compareAndSet(false, true)) return;
+        try {
+            refresher.execute(new RefreshExecutor.Task(stale.hits, () -> {
+                long start = System.nanoTime();
+                try {
+                    V val = loader.apply(stale.key);
+                    stats.recordLoad(System.nanoTime() - start, true);
+                    replace(stale, val);
+                } catch (RuntimeException err) {
+                    stats.recordLoad(System.nanoTime() - start, false);
+                    stale.refreshing.set(false);
+                }
+            }));
+        } catch (RejectedExecutionException err) {
+            stale.refreshing.set(false);
+        }
+    }
+
+    private void replace(Node<K, V> old, V val) {
+        Node<K, V> node = new Node<>(old.key, CompletableFuture.completedFuture(val));
+        node.writeTime = ticker.getAsLong();
+        node.hits = old.hits / 2;
+        if(!entries.replace(old.key, old, node)) return;
+        if(policy != null) {
+            policy.remove(old);
+            policy.onInsert(node, weigher.applyAsLong(val), this::isLive);
+        }
+    }
+
+    private boolean isLoaded(Node<K, V> node) {
+        return node.value.isDone() && !node.value.isCompletedExceptionally();
+    }
+
+    private boolean isExpired(Node<K, V> node) {
+        return expireNanos > 0 && isLoaded(node) && ticker.getAsLong() - node.writeTime >= expireNanos;
+    }
+
+    private boolean isStale(Node<K, V> node) {
+        return refreshNanos > 0 && ticker.getAsLong() - node.writeTime >= refreshNanos;
+    }
+
+    private boolean isLive(Node<K, V> node) {
+        return entries.get(node.key) == node;
+    }
+
+    /**
+     * Returns the value of key, or null if it is missing or still loading.
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = entries.get(key);
+        if(node == null || !isLoaded(node) || isExpired(node)) {
+            stats.recordMiss();
+            return null;
+        }
+        stats.recordHit();
+        if(policy != null) policy.onAccess(node);
+        return node.value.join();
+    }
+
+    public boolean containsKey(K key) {
+        Node<K, V> node = entries.get(key);
+        return node != null && isLoaded(node) && !isExpired(node);
+    }
+
+    public void put(K key, V val) {
+        Node<K, V> node = new Node<>(key, CompletableFuture.completedFuture(val));
+        node.writeTime = ticker.getAsLong();
+        Node<K, V> prev = entries.put(key, node);
+        if(policy != null) {
+            if(prev != null) policy.remove(prev);
+            policy.onInsert(node, weigher.applyAsLong(val), this::isLive);
+        }
+    }
+
+    /**
+     * Caches val unless key is already cached or loading.
+     * Returns true if val was cached.
+     */
+    public boolean putIfAbsent(K key, V val) {
+        Node<K, V> node = new Node<>(key, CompletableFuture.completedFuture(val));
+        node.writeTime = ticker.getAsLong();
+        if(entries.putIfAbsent(key, node) != null) return false;
+        if(policy != null) policy.onInsert(node, weigher.applyAsLong(val), this::isLive);
+        return true;
+    }
+
+    /**
+     * Performs action for each loaded and unexpired entry.
+     * Entries added or removed meanwhile may or may not be visited.
+     */
+    public void forEach(BiConsumer<K, V> action) {
+        for (Node<K, V> node : entries.values())
+            if(isLoaded(node) && !isExpired(node)) action.accept(node.key, node.value.join());
+    }
+
+    public void invalidate(K key) {
+        Node<K, V> node = entries.remove(key);
+        if(node != null && policy != null) policy.remove(node);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total weight of the cached values, or 0 if unbounded.
+     */
+    public long weightedSize() {
+        return policy == null ? 0 : policy.weightedSize();
+    }
+
+    public CacheStats stats() {
+        return stats;
+    }
+
+    private static <V> V join(CompletableFuture<V> entry) {
+        try {
+            return entry.join();
+        } catch (CompletionException e) {
+            Throwable err = e.getCause();
+            if(err instanceof RuntimeException) throw (RuntimeException) err;
+            if(err instanceof Error) throw (Error) err;
+            throw e;
+        }
+    }
+}
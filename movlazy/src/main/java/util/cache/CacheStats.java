@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Live statistics of a Cache: hits, misses, loads and their latency,
+ * evictions and current size. Counters are LongAdders, so recording
+ * does not contend among threads.
+ */
+public class CacheStats implements CacheStatsMXBean {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LongSupplier size;
+    private final LongSupplier weightedSize;
+
+    CacheStats(LongSupplier size, LongSupplier weightedSize) {
+        this.size = size;
+        this.weightedSize = weightedSize;
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordLoad(long nanos, boolean success) {
+        if(success) loadSuccesses.increment();
+        else loadFailures.increment();
+        loadNanos.add(nanos);
+        loadLatency.record(nanos);
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long h = getHitCount(), total = h + getMissCount();
+        return total == 0 ? 1.0 : (double) h / total;
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    @Override
+    public double getAverageLoadMillis() {
+        long loads = getLoadSuccessCount() + getLoadFailureCount();
+        return loads == 0 ? 0 : loadNanos.sum() / 1e6 / loads;
+    }
+
+    @Override
+    public double getLoadP50Millis() {
+        return loadLatency.percentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getLoadP99Millis() {
+        return loadLatency.percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getSize() {
+        return size.getAsLong();
+    }
+
+    @Override
+    public long getWeightedSize() {
+        return weightedSize.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", loadSuccesses=" + getLoadSuccessCount() +
+                ", loadFailures=" + getLoadFailureCount() +
+                ", averageLoadMillis=" + getAverageLoadMillis() +
+                ", evictions=" + getEvictionCount() +
+                ", size=" + getSize() +
+                ", weightedSize=" + getWeightedSize() +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, with a bucket per
+ * power of 2: bucket i counts durations in [2^i, 2^(i+1)).
+ * Percentiles are thus approximated by the upper bound of their bucket.
+ */
+public class LatencyHistogram {
+    private final LongAdder[] buckets = new LongAdder[64];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        buckets[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+    }
+
+    /**
+     * Returns the count of each bucket.
+     */
+    public long[] counts() {
+        long[] res = new long[buckets.length];
+        for (int i = 0; i < res.length; i++) res[i] = buckets[i].sum();
+        return res;
+    }
+
+    /**
+     * Returns an upper bound of the q-th quantile, in nanoseconds, with q in [0, 1].
+     */
+    public long percentile(double q) {
+        long[] counts = counts();
+        long total = 0;
+        for (long c : counts) total += c;
+        if(total == 0) return 0;
+        long rank = (long) Math.ceil(q * total), acc = 0;
+        for (int i = 0; i < counts.length; i++) {
+            acc += counts[i];
+            if(acc >= rank && counts[i] > 0) return i == 62 ? Long.MAX_VALUE : 1L << (i + 1);
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Entry of a Cache. The value is a future so that threads missing a key
+ * that is already loading wait for that load. Links and weight are only
+ * touched by the eviction policy, holding its lock. The writeTime
+ * is set once the value is loaded.
+ */
+class Node<K, V> {
+    static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+    final K key;
+    final CompletableFuture<V> value;
+    final AtomicBoolean refreshing = new AtomicBoolean();
+    volatile long writeTime;
+    /**
+     * Reads since loaded, approximate since increments may race.
+     */
+    volatile int hits;
+    long weight;
+    int queue = -1;
+    Node<K, V> prev, next;
+
+    Node(K key, CompletableFuture<V> value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    boolean isLinked() {
+        return queue >= 0;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util.cache;
+
+import java.util.Comparator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded Executor for the background refreshes of a {@link Cache}.
+ *
+ * A few threads take pending refreshes hottest first, that is, those of
+ * the keys read most often since their last load. Once capacity refreshes
+ * are pending, further ones are rejected and the Cache simply tries them
+ * again on a later read, so a burst of stale keys can neither pile up
+ * unbounded work nor starve the popular ones.
+ */
+public class RefreshExecutor implements Executor, AutoCloseable {
+
+    private static RefreshExecutor shared;
+
+    private final ThreadPoolExecutor pool;
+    private final int capacity;
+
+    /**
+     * @param threads number of threads running refreshes.
+     * @param capacity maximum number of pending refreshes.
+     */
+    public RefreshExecutor(int threads, int capacity) {
+        this.capacity = capacity;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(16, Comparator.comparingLong(RefreshExecutor::priority).reversed()),
+                task -> {
+                    Thread th = new Thread(task, "cache-refresh");
+                    th.setDaemon(true);
+                    return th;
+                });
+    }
+
+    /**
+     * Executor shared by default among services, with 2 threads
+     * and up to 1024 pending refreshes.
+     */
+    public static synchronized RefreshExecutor shared() {
+        if(shared == null) shared = new RefreshExecutor(2, 1024);
+        return shared;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if(pool.getQueue().size() >= capacity)
+            throw new RejectedExecutionException("Too many pending refreshes");
+        pool.execute(task instanceof Task ? task : new Task(0, task));
+    }
+
+    public int pending() {
+        return pool.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static long priority(Runnable task) {
+        return ((Task) task).priority;
+    }
+
+    /**
+     * Refresh submitted by a Cache, with the hits of its key as priority.
+     */
+    static class Task implements Runnable {
+        final long priority;
+        final Runnable action;
+
+        Task(long priority, Runnable action) {
+            this.priority = priority;
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+    }
+}
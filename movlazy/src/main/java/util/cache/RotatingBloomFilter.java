@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Compact, lock-free Bloom filter of long keys that forgets them after a
+ * while. Keys are put in the current of two generations, which becomes the
+ * previous one every half period, when the previous one is dropped. Thus a
+ * key is found from half a period to a full period after it was put, and
+ * never later, besides false positives at about the given rate.
+ */
+public class RotatingBloomFilter {
+
+    private final int words;
+    private final int mask;
+    private final int hashes;
+    private final long halfPeriodNanos;
+    private final LongSupplier ticker;
+    private final AtomicReference<Generations> generations;
+
+    private static final class Generations {
+        final AtomicLongArray current;
+        final AtomicLongArray previous;
+        final long rotateAt;
+
+        Generations(AtomicLongArray current, AtomicLongArray previous, long rotateAt) {
+            this.current = current;
+            this.previous = previous;
+            this.rotateAt = rotateAt;
+        }
+    }
+
+    public RotatingBloomFilter(int expectedKeys, double fpp, Duration period) {
+        this(expectedKeys, fpp, period, System::nanoTime);
+    }
+
+    /**
+     * Each generation is sized for expectedKeys, put in a half period.
+     */
+    public RotatingBloomFilter(int expectedKeys, double fpp, Duration period, LongSupplier ticker) {
+        double bits = -Math.max(1, expectedKeys) * Math.log(fpp) / (Math.log(2) * Math.log(2));
+        this.words = Integer.highestOneBit((int) Math.min(1 << 24, Math.ceil(bits / 64)) * 2 - 1);
+        this.mask = words * 64 - 1;
+        this.hashes = Math.max(1, (int) Math.round(bits / Math.max(1, expectedKeys) * Math.log(2)));
+        this.halfPeriodNanos = Math.max(1, period.toNanos() / 2);
+        this.ticker = ticker;
+        this.generations = new AtomicReference<>(new Generations(
+                new AtomicLongArray(words), new AtomicLongArray(words), ticker.getAsLong() + halfPeriodNanos));
+    }
+
+    public void put(long key) {
+        AtomicLongArray bits = generations().current;
+        long h = mix(key);
+        int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & mask;
+            long word = 1L << bit;
+            if((bits.get(bit >>> 6) & word) == 0) bits.accumulateAndGet(bit >>> 6, word, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * Whether key might have been put within the last period.
+     */
+    public boolean mightContain(long key) {
+        Generations g = generations();
+        long h = mix(key);
+        return contains(g.current, h) || contains(g.previous, h);
+    }
+
+    private boolean contains(AtomicLongArray bits, long h) {
+        int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if((bits.get(bit >>> 6) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The generations of now, rotated by whichever thread first sees them due.
+     * A key put meanwhile in the old current generation is kept as previous.
+     */
+    private Generations generations() {
+        Generations g = generations.get();
+        long now = ticker.getAsLong();
+        if(now - g.rotateAt < 0) return g;
+        // Keeps to the schedule, unless both generations are too old by now
+        Generations next = now - g.rotateAt < halfPeriodNanos
+                ? new Generations(new AtomicLongArray(words), g.current, g.rotateAt + halfPeriodNanos)
+                : new Generations(new AtomicLongArray(words), new AtomicLongArray(words), now + halfPeriodNanos);
+        return generations.compareAndSet(g, next) ? next : generations.get();
+    }
+
+    private static long mix(long key) {
+        long z = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package util.cache;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Window TinyLFU eviction policy bounded by the total weight of its entries.
+ *
+ * New entries go to an LRU window holding 1% of the maximum weight. Entries
+ * leaving the window become candidates to the main space, a segmented LRU of
+ * a probation and a protected (80%) segment. When the main space is full, the
+ * candidate is admitted only if it was used more often than the victim at the
+ * head of probation, according to a FrequencySketch. Thus one-hit wonders are
+ * kept out of the cache, while popular entries resist bursts of new ones.
+ *
+ * Reads record their access only if the lock is free, so they never block on
+ * the policy. Losing some accesses under contention does not hurt hit rates.
+ */
+class TinyLfu<K, V> {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final AccessOrder<K, V> window = new AccessOrder<>(Node.WINDOW);
+    private final AccessOrder<K, V> probation = new AccessOrder<>(Node.PROBATION);
+    private final AccessOrder<K, V> protect = new AccessOrder<>(Node.PROTECTED);
+    private final long maximumWeight, maxWindow, maxProtected;
+    private final Consumer<Node<K, V>> onEvict;
+    private long entries;
+
+    /**
+     * @param onEvict called, holding the lock, for every node evicted by this policy.
+     */
+    TinyLfu(long maximumWeight, Consumer<Node<K, V>> onEvict) {
+        this.maximumWeight = maximumWeight;
+        this.maxWindow = Math.max(1, maximumWeight / 100);
+        this.maxProtected = (long) ((maximumWeight - maxWindow) * 0.8);
+        this.onEvict = onEvict;
+    }
+
+    long weightedSize() {
+        lock.lock();
+        try {
+            return window.weight + probation.weight + protect.weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onAccess(Node<K, V> node) {
+        if(!lock.tryLock()) return;
+        try {
+            sketch.increment(node.key);
+            switch (node.queue) {
+                case Node.WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case Node.PROBATION:
+                    probation.remove(node);
+                    protect.addLast(node);
+                    while(protect.weight > maxProtected) {
+                        Node<K, V> demoted = protect.first();
+                        protect.remove(demoted);
+                        probation.addLast(demoted);
+                    }
+                    break;
+                case Node.PROTECTED:
+                    protect.moveToLast(node);
+                    break;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a node whose value has just been loaded, evicting others if needed.
+     * isLive tells whether the node is still in the cache, since it may have
+     * been invalidated while loading.
+     */
+    void onInsert(Node<K, V> node, long weight, Predicate<Node<K, V>> isLive) {
+        lock.lock();
+        try {
+            if(!isLive.test(node) || node.isLinked()) return;
+            sketch.increment(node.key);
+            sketch.ensureCapacity(++entries);
+            node.weight = weight;
+            if(weight > maximumWeight) {
+                evict(node);
+                return;
+            }
+            window.addLast(node);
+            while(window.weight > maxWindow && !window.isEmpty()) {
+                Node<K, V> candidate = window.first();
+                window.remove(candidate);
+                admit(candidate);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves candidate to probation, evicting the least frequent between
+     * itself and the victims at the head of probation until all fits.
+     */
+    private void admit(Node<K, V> candidate) {
+        probation.addLast(candidate);
+        while(window.weight + probation.weight + protect.weight > maximumWeight) {
+            Node<K, V> victim = probation.first();
+            if(victim == candidate) victim = protect.isEmpty() ? candidate : protect.first();
+            if(victim == candidate) {
+                evict(candidate);
+                return;
+            }
+            if(sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                evict(candidate);
+                return;
+            }
+        }
+    }
+
+    void remove(Node<K, V> node) {
+        lock.lock();
+        try {
+            if(unlink(node)) entries--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        if(node.isLinked()) unlink(node);
+        entries--;
+        onEvict.accept(node);
+    }
+
+    private boolean unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case Node.WINDOW: window.remove(node); return true;
+            case Node.PROBATION: probation.remove(node); return true;
+            case Node.PROTECTED: protect.remove(node); return true;
+            default: return false;
+        }
+    }
+}
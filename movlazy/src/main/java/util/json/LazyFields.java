@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.UnaryOperator;
+
+/**
+ * Raw JSON values of a few fields, copied out of a response and decoded
+ * only when first read. The values share a single byte array, so those
+ * never read cost about their UTF-8 size, rather than a String each.
+ */
+public class LazyFields {
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private String[] decoded;
+
+    /**
+     * Copies the values of count fields, starting at field first,
+     * whose bounds are given as by {@link RawJson#index}.
+     */
+    public LazyFields(byte[] json, int[] bounds, int first, int count) {
+        int size = 0;
+        for (int i = first; i < first + count; i++)
+            size += bounds[2 * i] < 0 ? NULL.length : bounds[2 * i + 1] - bounds[2 * i];
+        this.bytes = new byte[size];
+        this.offsets = new int[count + 1];
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            int start = bounds[2 * (first + i)], end = bounds[2 * (first + i) + 1];
+            if(start < 0) System.arraycopy(NULL, 0, bytes, pos, NULL.length);
+            else System.arraycopy(json, start, bytes, pos, end - start);
+            pos += start < 0 ? NULL.length : end - start;
+            offsets[i + 1] = pos;
+        }
+    }
+
+    /**
+     * Decodes the string value of field i on the first call, then returns
+     * that same String. Concurrent first calls may decode it more than once.
+     */
+    public String getString(int i) {
+        return getString(i, UnaryOperator.identity());
+    }
+
+    /**
+     * Like getString(i), but keeps and returns the String given by intern
+     * for the decoded one, e.g. a pooled copy of a value that often repeats.
+     */
+    public String getString(int i, UnaryOperator<String> intern) {
+        String[] strs = decoded;
+        if(strs == null) decoded = strs = new String[offsets.length - 1];
+        String str = strs[i];
+        if(str == null) {
+            str = intern.apply(RawJson.decodeString(bytes, offsets[i], offsets[i + 1]));
+            strs[i] = str;
+        }
+        return str;
+    }
+
+    /**
+     * Approximate heap retained, not counting Strings decoded meanwhile.
+     */
+    public long retainedSize() {
+        return 16 + 3 * 4 + 16 + bytes.length + 16 + 4L * offsets.length;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package util.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal reader of JSON bytes, for decoding only the fields in use.
+ *
+ * index() scans a top level object once, recording where the value of each
+ * wanted field starts and ends, and skipping everything else without
+ * building any object. The decode methods then read single values.
+ */
+public class RawJson {
+
+    private RawJson() {
+    }
+
+    /**
+     * Returns the bounds of the values of the given fields, as pairs of
+     * start (inclusive) and end (exclusive) offsets, -1 for a missing field.
+     * Field names are compared byte per byte, thus must not be escaped.
+     */
+    public static int[] index(byte[] json, String... fields) {
+        byte[][] names = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) names[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+        int[] bounds = new int[2 * fields.length];
+        Arrays.fill(bounds, -1);
+        int pos = skipSpaces(json, 0);
+        expect(json, pos, '{');
+        pos = skipSpaces(json, pos + 1);
+        if(pos < json.length && json[pos] == '}') return bounds;
+        while(true) {
+            expect(json, pos, '"');
+            int keyStart = pos + 1;
+            int keyEnd = skipString(json, pos) - 1;
+            pos = skipSpaces(json, keyEnd + 1);
+            expect(json, pos, ':');
+            int valStart = skipSpaces(json, pos + 1);
+            int valEnd = skipValue(json, valStart);
+            for (int i = 0; i < names.length; i++) {
+                if(bounds[2 * i] < 0 && equals(json, keyStart, keyEnd, names[i])) {
+                    bounds[2 * i] = valStart;
+                    bounds[2 * i + 1] = valEnd;
+                }
+            }
+            pos = skipSpaces(json, valEnd);
+            if(pos >= json.length) throw error(json, pos, "unterminated object");
+            if(json[pos] == '}') return bounds;
+            expect(json, pos, ',');
+            pos = skipSpaces(json, pos + 1);
+        }
+    }
+
+    /**
+     * Decodes a string value, or null, from json[start, end).
+     */
+    public static String decodeString(byte[] json, int start, int end) {
+        if(start < 0 || isNull(json, start, end)) return null;
+        expect(json, start, '"');
+        int from = start + 1, to = end - 1;
+        // Common case, no escapes: decode the UTF-8 bytes at once
+        int i = from;
+        while(i < to && json[i] != '\\') i++;
+        if(i == to) return new String(json, from, to - from, StandardCharsets.UTF_8);
+        StringBuilder res = new StringBuilder(to - from);
+        res.append(new String(json, from, i - from, StandardCharsets.UTF_8));
+        while(i < to) {
+            int run = i;
+            while(i < to && json[i] != '\\') i++;
+            if(i > run) res.append(new String(json, run, i - run, StandardCharsets.UTF_8));
+            if(i >= to) break;
+            byte esc = json[i + 1];
+            switch (esc) {
+                case 'n': res.append('\n'); break;
+                case 't': res.append('\t'); break;
+                case 'r': res.append('\r'); break;
+                case 'b': res.append('\b'); break;
+                case 'f': res.append('\f'); break;
+                case 'u':
+                    res.append((char) Integer.parseInt(new String(json, i + 2, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                    break;
+                default: res.append((char) esc); // \" \\ \/
+            }
+            i += 2;
+        }
+        return res.toString();
+    }
+
+    /**
+     * Decodes a number value from json[start, end), or 0 if missing or null.
+     */
+    public static double decodeDouble(byte[] json, int start, int end) {
+        if(start < 0 || isNull(json, start, end)) return 0;
+        return Double.parseDouble(new String(json, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    public static int decodeInt(byte[] json, int start, int end) {
+        if(start < 0 || isNull(json, start, end)) return 0;
+        return Integer.parseInt(new String(json, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    private static boolean isNull(byte[] json, int start, int end) {
+        return end - start == 4 && json[start] == 'n';
+    }
+
+    /**
+     * Returns the offset just after the value starting at pos.
+     */
+    private static int skipValue(byte[] json, int pos) {
+        if(pos >= json.length) throw error(json, pos, "missing value");
+        byte b = json[pos];
+        if(b == '"') return skipString(json, pos);
+        if(b == '{' || b == '[') {
+            int depth = 0;
+            while(pos < json.length) {
+                b = json[pos];
+                if(b == '"') {
+                    pos = skipString(json, pos);
+                    continue;
+                }
+                if(b == '{' || b == '[') depth++;
+                else if(b == '}' || b == ']') {
+                    if(--depth == 0) return pos + 1;
+                }
+                pos++;
+            }
+            throw error(json, pos, "unterminated value");
+        }
+        // Number, true, false or null
+        while(pos < json.length && b != ',' && b != '}' && b != ']' && b > ' ') {
+            if(++pos < json.length) b = json[pos];
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the offset just after the closing quote of the string at pos.
+     */
+    private static int skipString(byte[] json, int pos) {
+        for (int i = pos + 1; i < json.length; i++) {
+            if(json[i] == '\\') i++;
+            else if(json[i] == '"') return i + 1;
+        }
+        throw error(json, pos, "unterminated string");
+    }
+
+    private static int skipSpaces(byte[] json, int pos) {
+        while(pos < json.length && json[pos] <= ' ') pos++;
+        return pos;
+    }
+
+    private static boolean equals(byte[] json, int start, int end, byte[] name) {
+        if(end - start != name.length) return false;
+        for (int i = 0; i < name.length; i++)
+            if(json[start + i] != name[i]) return false;
+        return true;
+    }
+
+    private static void expect(byte[] json, int pos, char c) {
+        if(pos >= json.length || json[pos] != c) throw error(json, pos, "expected '" + c + "'");
+    }
+
+    private static IllegalArgumentException error(byte[] json, int pos, String msg) {
+        return new IllegalArgumentException("Malformed JSON at " + pos + ": " + msg);
+    }
+}
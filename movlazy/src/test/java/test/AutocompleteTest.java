@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import movlazy.Autocomplete;
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.model.SearchItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static util.Queries.map;
+import static util.Queries.toList;
+
+public class AutocompleteTest {
+
+    private static Autocomplete hulks() {
+        Autocomplete autocomplete = new Autocomplete(new MovService(new FakeMovWebApi(0, 0)));
+        autocomplete.onTitles(new SearchItem(1, "The Incredible Hulk", "2008-06-12", 6.1, null));
+        autocomplete.onTitles(new SearchItem(2, "Hulk", "2003-06-19", 5.4, null), "O Incrível Hulk");
+        autocomplete.onTitles(new SearchItem(3, "Hulk Vs.", "2009-01-27", 6.8, null));
+        return autocomplete;
+    }
+
+    @Test
+    public void testCompletesFromAnyOfTheFirstWords() {
+        Autocomplete autocomplete = hulks();
+        assertEquals(Arrays.asList(3, 1, 2), ids(autocomplete.complete("hul", 10)));
+        assertEquals(Arrays.asList(1, 2), ids(autocomplete.complete("INCR", 10)));
+        assertEquals(Arrays.asList(1), ids(autocomplete.complete("incredible hu", 10)));
+        assertEquals(Arrays.asList(3), ids(autocomplete.complete("hul", 1)));
+        assertTrue(autocomplete.complete("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void testForgetsLeastRecentlySeenBeyondMaxMovies() {
+        Autocomplete autocomplete = new Autocomplete(new MovService(new FakeMovWebApi(0, 0)), 2);
+        autocomplete.onTitles(new SearchItem(1, "The Incredible Hulk", "2008-06-12", 6.1, null));
+        autocomplete.onTitles(new SearchItem(2, "Hulk", "2003-06-19", 5.4, null), "O Incrível Hulk");
+        autocomplete.onTitles(new SearchItem(1, "The Incredible Hulk", "2008-06-12", 6.1, null)); // Seen again
+        autocomplete.onTitles(new SearchItem(3, "Hulk Vs.", "2009-01-27", 6.8, null));
+        assertEquals(Arrays.asList(3, 1), ids(autocomplete.complete("hul", 10)));
+        assertEquals(Arrays.asList(1), ids(autocomplete.complete("incr", 10)));
+        autocomplete.onTitles(new SearchItem(4, "Hugo", "2011-11-22", 7.2, null));
+        assertEquals(Arrays.asList(4, 3), ids(autocomplete.complete("hu", 10)));
+        assertTrue(autocomplete.complete("incr", 10).isEmpty());
+    }
+
+    @Test
+    public void testClampsOrDefaultsK() {
+        Autocomplete autocomplete = hulks();
+        assertEquals(3, json(autocomplete.toJson("hulk", null)).size());
+        assertEquals(3, json(autocomplete.toJson("hulk", "99")).size());
+        assertEquals(2, json(autocomplete.toJson("hulk", " 2 ")).size());
+        assertEquals(0, json(autocomplete.toJson("hulk", "-3")).size());
+        assertEquals(3, json(autocomplete.toJson("hulk", "many")).size());
+        assertEquals(3, json(autocomplete.toJson("hulk", "99999999999")).size());
+        assertEquals(0, json(autocomplete.toJson(null, "5")).size());
+    }
+
+    @Test
+    public void testJsonOutput() {
+        JsonArray res = json(hulks().toJson("incredible", "1"));
+        assertEquals(1, res.size());
+        JsonObject sug = res.get(0).getAsJsonObject();
+        assertEquals(1, sug.get("id").getAsInt());
+        assertEquals("The Incredible Hulk", sug.get("title").getAsString());
+        assertEquals("2008-06-12", sug.get("releaseDate").getAsString());
+        assertEquals(6.1, sug.get("voteAverage").getAsDouble());
+    }
+
+    private static JsonArray json(String text) {
+        return new Gson().fromJson(text, JsonArray.class);
+    }
+
+    private static List<Integer> ids(List<Autocomplete.Suggestion> suggestions) {
+        return toList(map(Autocomplete.Suggestion::getId, suggestions));
+    }
+}
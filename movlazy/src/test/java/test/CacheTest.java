@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.model.Movie;
+import movlazy.model.SearchItem;
+import org.junit.jupiter.api.Test;
+import util.Queries;
+import util.cache.Cache;
+import util.cache.CacheStats;
+import util.cache.RefreshExecutor;
+import util.cache.RotatingBloomFilter;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheTest {
+
+    @Test
+    public void testWeightNeverExceedsMaximum() {
+        Cache<Integer, String> cache = new Cache<>(1000, s -> s.length());
+        for (int i = 0; i < 10_000; i++) {
+            cache.get(i, k -> "value-" + k);
+            assertTrue(cache.weightedSize() <= 1000);
+        }
+        assertTrue(cache.size() < 200);
+    }
+
+    @Test
+    public void testHeavierThanMaximumIsNotKept() {
+        Cache<Integer, String> cache = new Cache<>(10, s -> s.length());
+        assertEquals("a very long value", cache.get(1, k -> "a very long value"));
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void testPopularKeysSurviveScan() {
+        Cache<Integer, String> cache = new Cache<>(100 * 10, s -> 10);
+        int[] loads = {0};
+        // 50 popular keys, accessed many times
+        for (int round = 0; round < 20; round++)
+            for (int k = 0; k < 50; k++)
+                cache.get(k, key -> { loads[0]++; return "popular"; });
+        // A scan of one-hit keys, as from a crawler
+        for (int k = 1000; k < 11_000; k++)
+            cache.get(k, key -> "one-hit");
+        int before = loads[0];
+        for (int k = 0; k < 50; k++)
+            cache.get(k, key -> { loads[0]++; return "popular"; });
+        assertTrue(loads[0] - before <= 5, "Popular keys evicted: " + (loads[0] - before));
+    }
+
+    @Test
+    public void testStaleWhileRevalidateThenExpire() {
+        long[] now = {0};
+        int[] version = {0};
+        Cache<String, String> cache = new Cache<String, String>()
+                .expireAfterWrite(Duration.ofSeconds(60))
+                .refreshAfterWrite(Duration.ofSeconds(10), Runnable::run)
+                .ticker(() -> now[0]);
+        Function<String, String> loader = k -> k + ++version[0];
+        assertEquals("hulk1", cache.get("hulk", loader));
+        now[0] = Duration.ofSeconds(15).toNanos();
+        assertEquals("hulk1", cache.get("hulk", loader)); // Stale, but served while refreshing
+        assertEquals("hulk2", cache.get("hulk", loader));
+        now[0] = Duration.ofSeconds(100).toNanos();
+        assertNull(cache.getIfPresent("hulk"));
+        assertEquals("hulk3", cache.get("hulk", loader)); // Expired, thus reloaded
+    }
+
+    @Test
+    public void testHottestKeysAreRefreshedFirst() throws InterruptedException {
+        long[] now = {0};
+        List<String> refreshed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch busy = new CountDownLatch(1);
+        try(RefreshExecutor refresher = new RefreshExecutor(1, 100)) {
+            Cache<String, String> cache = new Cache<String, String>()
+                    .refreshAfterWrite(Duration.ofSeconds(10), refresher)
+                    .ticker(() -> now[0]);
+            Function<String, String> loader = k -> {
+                if(now[0] > 0) refreshed.add(k);
+                return k;
+            };
+            int[] reads = {1, 5, 3};
+            String[] keys = {"cold", "hot", "warm"};
+            for (int i = 0; i < keys.length; i++)
+                for (int r = 0; r <= reads[i]; r++) cache.get(keys[i], loader);
+            refresher.execute(() -> {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            now[0] = Duration.ofSeconds(15).toNanos();
+            for (String key : keys) assertEquals(key, cache.get(key, loader));
+            assertEquals(3, refresher.pending());
+            busy.countDown();
+            for (int i = 0; i < 100 && refreshed.size() < 3; i++) Thread.sleep(10);
+            assertEquals(Arrays.asList("hot", "warm", "cold"), refreshed);
+        }
+    }
+
+    @Test
+    public void testRefreshExecutorIsBounded() {
+        CountDownLatch busy = new CountDownLatch(1);
+        try(RefreshExecutor refresher = new RefreshExecutor(1, 1)) {
+            Runnable wait = () -> {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            refresher.execute(wait);
+            refresher.execute(wait);
+            assertThrows(RejectedExecutionException.class, () -> refresher.execute(wait));
+            busy.countDown();
+        }
+    }
+
+    @Test
+    public void testMovServiceRefreshesStaleMoviesInBackground() throws InterruptedException {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovService movapi = new MovService(api, new MovServiceConfig()
+                .moviesExpiry(Duration.ofMillis(50), Duration.ofMinutes(1))
+                .refresher(Runnable::run));
+        Movie first = movapi.getMovie(1);
+        Thread.sleep(80);
+        assertSame(first, movapi.getMovie(1)); // Stale, but served while refreshing
+        assertEquals(2, api.countMovie(1));
+        assertNotSame(first, movapi.getMovie(1));
+        assertEquals(2, api.countMovie(1));
+    }
+
+    @Test
+    public void testSearchesDifferingInCaseAndSpacingShareRequests() {
+        FakeMovWebApi api = new FakeMovWebApi(50, 0);
+        MovService movapi = new MovService(api, new MovServiceConfig().searchCacheBytes(1 << 20));
+        assertEquals(50, Queries.count(movapi.search("Hulk ")));
+        assertEquals(3, api.count(Endpoint.SEARCH)); // No request past the last page
+        assertEquals(50, Queries.count(movapi.search("hulk")));
+        assertEquals(3, api.count(Endpoint.SEARCH));
+    }
+
+    @Test
+    public void testMovServiceRefreshesStaleSearchesInBackground() throws InterruptedException {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovService movapi = new MovService(api, new MovServiceConfig()
+                .searchCacheBytes(1 << 20)
+                .searchRefreshAfter(Duration.ofMillis(50))
+                .refresher(Runnable::run));
+        SearchItem first = movapi.search("hulk").iterator().next();
+        assertEquals(1, api.count(Endpoint.SEARCH));
+        Thread.sleep(80);
+        assertSame(first, movapi.search("hulk").iterator().next()); // Stale, but served while refreshing
+        assertEquals(2, api.count(Endpoint.SEARCH));
+        movapi.search("hulk").iterator().next();
+        assertEquals(2, api.count(Endpoint.SEARCH));
+    }
+
+    @Test
+    public void testStats() {
+        Cache<Integer, String> cache = new Cache<>(30, s -> 10);
+        cache.get(1, k -> "one");
+        cache.get(1, k -> "one");
+        assertThrows(IllegalStateException.class, () -> cache.get(2, k -> { throw new IllegalStateException(); }));
+        for (int k = 3; k < 10; k++) cache.get(k, key -> "other");
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(9, stats.getMissCount());
+        assertEquals(8, stats.getLoadSuccessCount());
+        assertEquals(1, stats.getLoadFailureCount());
+        assertEquals(5, stats.getEvictionCount());
+        assertEquals(30, stats.getWeightedSize());
+        assertEquals(3, stats.getSize());
+    }
+
+    @Test
+    public void testRotatingBloomFilterForgetsAfterPeriod() {
+        long[] now = {0};
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, Duration.ofSeconds(60), () -> now[0]);
+        for (long key = 0; key < 1000; key++) filter.put(key);
+        int falsePositives = 0;
+        for (long key = 1000; key < 101_000; key++) if(filter.mightContain(key)) falsePositives++;
+        assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+        now[0] = Duration.ofSeconds(29).toNanos();
+        filter.put(-1);
+        now[0] = Duration.ofSeconds(59).toNanos();
+        assertTrue(filter.mightContain(0)); // Kept for at least half a period
+        assertTrue(filter.mightContain(-1));
+        now[0] = Duration.ofSeconds(60).toNanos();
+        assertFalse(filter.mightContain(0)); // And for no more than a period
+        assertFalse(filter.mightContain(-1));
+        filter.put(7);
+        now[0] = Duration.ofSeconds(500).toNanos();
+        assertFalse(filter.mightContain(7)); // Even when rotating late
+    }
+
+    @Test
+    public void testMovServiceStatsThroughJmx() throws Exception {
+        MovService movapi = new MovService(new FakeMovWebApi(10, 0));
+        movapi.getMovie(1);
+        movapi.getMovie(1);
+        movapi.registerMBeans("movlazy.test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("movlazy.test:type=Cache,name=movies");
+        assertEquals(1L, server.getAttribute(name, "HitCount"));
+        assertEquals(1L, server.getAttribute(name, "MissCount"));
+        assertEquals(0L, movapi.stats().get("actors").getLoadSuccessCount());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovWebApi.Endpoint;
+import movlazy.crawler.Crawler;
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.SearchItemDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CrawlerTest {
+
+    @Test
+    public void testCrawlStopsAtMaxDepth() {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        Set<Integer> movies = ConcurrentHashMap.newKeySet();
+        Crawler crawler = new Crawler(api, new Crawler.Visitor() {
+            public void cast(int movieId, CastItemDto[] cast, int depth) {
+                movies.add(movieId);
+            }
+        });
+        // Movie 1 -> actors 1, 2 and 3 -> movies 1, 2 and 3
+        int visited = crawler.details(false).maxDepth(2).addMovie(1).run();
+        assertEquals(6, visited);
+        assertEquals(3, movies.size());
+        assertEquals(3, api.count(Endpoint.MOVIE_CREDITS));
+        assertEquals(3, api.count(Endpoint.PERSON_CREDITS));
+        assertEquals(0, api.count(Endpoint.MOVIE));
+        assertEquals(0, crawler.getPending());
+    }
+
+    @Test
+    public void testCrawlVisitsEachNodeOnceWithinEndpointCaps() {
+        AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+        FakeMovWebApi api = new FakeMovWebApi(50, 5) {
+            @Override
+            public SearchItemDto[] getPersonCreditsCast(int personId) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    return super.getPersonCreditsCast(personId);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+        Crawler crawler = new Crawler(api, new Crawler.Visitor() { })
+                .workers(8)
+                .maxInFlight(Endpoint.PERSON_CREDITS, 2)
+                .addMovie(1);
+        // Movies 1 to 50 and actors 1 to 52
+        assertEquals(102, crawler.run());
+        assertEquals(50, api.count(Endpoint.MOVIE));
+        assertEquals(50, api.count(Endpoint.MOVIE_CREDITS));
+        assertEquals(52, api.count(Endpoint.PERSON));
+        assertEquals(52, api.count(Endpoint.PERSON_CREDITS));
+        assertEquals(204, crawler.getRequests());
+        assertTrue(maxInFlight.get() <= 2, "At most 2 in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    public void testCrawlResumesFromCheckpoint() throws IOException {
+        FakeMovWebApi api = new FakeMovWebApi(50, 0);
+        Path file = Files.createTempFile("crawl", ".checkpoint");
+        try {
+            Crawler first = new Crawler(api, new Crawler.Visitor() { })
+                    .details(false)
+                    .maxRequests(20)
+                    .checkpoint(file, 5)
+                    .addMovie(1);
+            assertEquals(20, first.run());
+            assertTrue(first.getPending() > 0);
+
+            Crawler resumed = new Crawler(api, new Crawler.Visitor() { })
+                    .details(false)
+                    .resume(file);
+            assertEquals(20, resumed.getVisited());
+            assertEquals(82, resumed.run());
+            assertEquals(102, resumed.getRequests());
+            // Nothing visited before the checkpoint is fetched again
+            assertEquals(50, api.count(Endpoint.MOVIE_CREDITS));
+            assertEquals(52, api.count(Endpoint.PERSON_CREDITS));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCrawlRetriesTransientFailures() {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0).failMovie(1, 2);
+        AtomicInteger movieOne = new AtomicInteger();
+        Crawler crawler = new Crawler(api, new Crawler.Visitor() {
+            public void movie(MovieDto mov, int depth) {
+                if(mov.getId() == 1) movieOne.incrementAndGet();
+            }
+        });
+        // The seed fails twice and then succeeds, reported to the visitor once
+        long start = System.nanoTime();
+        assertEquals(4, crawler.maxDepth(1).retryBackoff(Duration.ofMillis(50)).addMovie(1).run());
+        // Retried after 50 and then 100 milliseconds
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(150).toNanos());
+        assertEquals(3, api.countMovie(1));
+        assertEquals(1, movieOne.get());
+        assertEquals(2, crawler.getFailures());
+        assertEquals(0, crawler.getPending());
+    }
+
+    @Test
+    public void testCrawlKeepsGivenUpNodesInCheckpoint() throws IOException {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0).failMovie(1, 5);
+        Path file = Files.createTempFile("crawl", ".checkpoint");
+        try {
+            Crawler first = new Crawler(api, new Crawler.Visitor() { })
+                    .maxAttempts(3)
+                    .retryBackoff(Duration.ofMillis(1))
+                    .checkpoint(file, 100)
+                    .addMovie(1);
+            assertEquals(0, first.run());
+            assertEquals(3, api.countMovie(1));
+            assertEquals(1, first.getPending());
+
+            Crawler resumed = new Crawler(api, new Crawler.Visitor() { })
+                    .maxDepth(0)
+                    .retryBackoff(Duration.ofMillis(1))
+                    .resume(file);
+            assertEquals(1, resumed.getPending());
+            // Fails twice more, then succeeds
+            assertEquals(1, resumed.run());
+            assertEquals(6, api.countMovie(1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFailedCheckpointLeavesNoTempFile() throws IOException {
+        // A non empty directory in place of the checkpoint makes the final move fail
+        Path dir = Files.createTempDirectory("crawl");
+        Path file = dir.resolve("checkpoint");
+        Path blocker = Files.createFile(Files.createDirectory(file).resolve("blocker"));
+        try {
+            Crawler crawler = new Crawler(new FakeMovWebApi(10, 0), new Crawler.Visitor() { }).addMovie(1);
+            assertThrows(UncheckedIOException.class, () -> crawler.checkpoint(file));
+            assertFalse(Files.exists(dir.resolve("checkpoint.tmp")));
+        } finally {
+            Files.deleteIfExists(blocker);
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
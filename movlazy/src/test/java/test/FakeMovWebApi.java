@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import com.google.gson.Gson;
+import movlazy.MovWebApi;
+import movlazy.NotFoundException;
+import movlazy.dto.CastItemDto;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.dto.SearchDto;
+import movlazy.dto.SearchItemDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline MovWebApi over a synthetic graph: the cast of movie m are
+ * the actors m, m + 1 and m + 2, thus actor a plays in movies a - 2, a - 1 and a.
+ * Every request takes latency milliseconds and is counted per endpoint and id.
+ */
+public class FakeMovWebApi extends MovWebApi {
+
+    final Gson gson = new Gson();
+    final Map<Endpoint, AtomicInteger> requests = new ConcurrentHashMap<>();
+    final Map<Integer, AtomicInteger> movieRequests = new ConcurrentHashMap<>();
+    final Map<Integer, AtomicInteger> failures = new ConcurrentHashMap<>();
+    final int moviesCount;
+    final long latency;
+
+    public FakeMovWebApi(int moviesCount, long latency) {
+        super(path -> { throw new UnsupportedOperationException(path); });
+        this.moviesCount = moviesCount;
+        this.latency = latency;
+    }
+
+    /**
+     * The next n requests for movie id fail.
+     */
+    public FakeMovWebApi failMovie(int id, int n) {
+        failures.put(id, new AtomicInteger(n));
+        return this;
+    }
+
+    public int count(Endpoint endpoint) {
+        AtomicInteger n = requests.get(endpoint);
+        return n == null ? 0 : n.get();
+    }
+
+    public int countMovie(int id) {
+        AtomicInteger n = movieRequests.get(id);
+        return n == null ? 0 : n.get();
+    }
+
+    @Override
+    public SearchDto searchPage(String title, int page) {
+        request(Endpoint.SEARCH);
+        int size = 20, from = (page - 1) * size + 1;
+        List<SearchItemDto> res = new ArrayList<>();
+        for (int id = from; id < from + size && id <= moviesCount; id++) res.add(searchItem(id));
+        return new SearchDto(res.toArray(new SearchItemDto[0]), null, (moviesCount + size - 1) / size);
+    }
+
+    @Override
+    public MovieDto getMovie(int id) {
+        request(Endpoint.MOVIE);
+        movieRequests.computeIfAbsent(id, __ -> new AtomicInteger()).incrementAndGet();
+        AtomicInteger remaining = failures.get(id);
+        if(remaining != null && remaining.getAndDecrement() > 0) throw new IllegalStateException("Failed movie " + id);
+        if(id < 1 || id > moviesCount) throw new NotFoundException(Endpoint.MOVIE, id);
+        return new MovieDto(id, "Movie " + id, "Tagline " + id, "Overview of movie " + id, vote(id), year(id) + "-01-01");
+    }
+
+    @Override
+    public byte[] getMovieJson(int id) {
+        return gson.toJson(getMovie(id)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CastItemDto[] getMovieCast(int movieId) {
+        request(Endpoint.MOVIE_CREDITS);
+        CastItemDto[] cast = new CastItemDto[3];
+        for (int i = 0; i < cast.length; i++) {
+            int actor = movieId + i;
+            cast[i] = new CastItemDto(actor, movieId, "Character " + actor, "Actor " + actor);
+        }
+        return cast;
+    }
+
+    @Override
+    public PersonDto getPerson(int personId) {
+        request(Endpoint.PERSON);
+        return new PersonDto(personId, "Actor " + personId, "Lisbon", "Biography of actor " + personId);
+    }
+
+    @Override
+    public byte[] getPersonJson(int personId) {
+        return gson.toJson(getPerson(personId)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public SearchItemDto[] getPersonCreditsCast(int personId) {
+        request(Endpoint.PERSON_CREDITS);
+        List<SearchItemDto> res = new ArrayList<>();
+        for (int id = personId - 2; id <= personId; id++)
+            if(id >= 1 && id <= moviesCount) res.add(searchItem(id));
+        return res.toArray(new SearchItemDto[0]);
+    }
+
+    private static SearchItemDto searchItem(int id) {
+        return new SearchItemDto(id, "Movie " + id, year(id) + "-01-01", vote(id));
+    }
+
+    private static double vote(int id) {
+        return (id % 100) / 10.0;
+    }
+
+    private static int year(int id) {
+        return 1980 + id % 40;
+    }
+
+    private void request(Endpoint endpoint) {
+        requests.computeIfAbsent(endpoint, __ -> new AtomicInteger()).incrementAndGet();
+        if(latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import org.junit.jupiter.api.Test;
+import util.ConcurrentIntHashMap;
+import util.IntHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntHashMapTest {
+
+    @Test
+    public void testBehavesAsHashMap() {
+        Random rnd = new Random(7);
+        IntHashMap<String> map = new IntHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Few distinct keys, including 0 and negatives, to force collisions and removals
+            int key = rnd.nextInt(2000) - 1000;
+            if(rnd.nextInt(3) == 0) assertEquals(expected.remove(key), map.remove(key));
+            else assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -1000; key < 1000; key++) assertEquals(expected.get(key), map.get(key));
+        Map<Integer, String> visited = new HashMap<>();
+        map.forEachInt((val, key) -> visited.put(key, val));
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void testConcurrentMapOfIntegers() {
+        ConcurrentMap<Integer, String> map = new ConcurrentIntHashMap<>();
+        assertNull(map.putIfAbsent(0, "zero"));
+        assertEquals("zero", map.putIfAbsent(0, "other"));
+        assertTrue(map.replace(0, "zero", "ZERO"));
+        assertEquals(false, map.remove(0, "zero"));
+        for (int i = 1; i < 10_000; i++) map.put(i, "v" + i);
+        assertEquals(10_000, map.size());
+        assertEquals("v4242", map.get(4242));
+        assertNull(map.get("4242"));
+        map.entrySet().removeIf(e -> e.getKey() % 2 == 1);
+        assertEquals(5_000, map.size());
+        assertEquals("ZERO", map.get(0));
+    }
+
+    @Test
+    public void testConcurrentPutIfAbsentAndReads() throws InterruptedException {
+        ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>(16, 4);
+        AtomicInteger wins = new AtomicInteger(), wrong = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int key = 0; key < 100_000; key++) {
+                    if(map.putIfAbsent(key, Integer.valueOf(key)) == null) wins.incrementAndGet();
+                    // Reads racing with resizes of the same segment
+                    Integer val = map.get(key / 2);
+                    if(val != null && val != key / 2) wrong.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread th : threads) th.join();
+        assertEquals(100_000, wins.get());
+        assertEquals(0, wrong.get());
+        assertEquals(100_000, map.size());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import org.junit.jupiter.api.Test;
+import util.IntSets;
+import util.TaskScope;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntSetsTest {
+
+    private static int[] random(Random rnd, int size, int bound) {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) ids[i] = rnd.nextInt(bound);
+        return IntSets.of(ids);
+    }
+
+    private static int[] toArray(Set<Integer> set) {
+        int[] res = new int[set.size()];
+        int i = 0;
+        for (int id : set) res[i++] = id;
+        return res;
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> res = new TreeSet<>();
+        for (int id : ids) res.add(id);
+        return res;
+    }
+
+    @Test
+    public void testOfSortsAndDropsDuplicates() {
+        assertArrayEquals(new int[]{1, 3, 7}, IntSets.of(7, 3, 1, 3, 7, 7));
+        assertArrayEquals(new int[0], IntSets.of());
+        assertTrue(IntSets.contains(IntSets.of(5, 2), 5));
+    }
+
+    @Test
+    public void testOperationsMatchTreeSet() {
+        Random rnd = new Random(42);
+        // Similar sizes merge, skewed sizes gallop
+        int[][] sizes = {{100, 120}, {10, 5000}, {3, 100_000}, {0, 10}};
+        for (int[] size : sizes) {
+            int[] a = random(rnd, size[0], 20_000), b = random(rnd, size[1], 20_000);
+            Set<Integer> and = toSet(a), or = toSet(a), minus = toSet(a);
+            and.retainAll(toSet(b));
+            or.addAll(toSet(b));
+            minus.removeAll(toSet(b));
+            assertArrayEquals(toArray(and), IntSets.intersect(a, b));
+            assertArrayEquals(toArray(and), IntSets.intersect(b, a));
+            assertArrayEquals(toArray(or), IntSets.union(a, b));
+            assertArrayEquals(toArray(minus), IntSets.difference(a, b));
+        }
+    }
+
+    @Test
+    public void testIntersectAll() {
+        int[] a = IntSets.of(1, 2, 3, 4, 5, 6), b = IntSets.of(2, 4, 6, 8), c = IntSets.of(4, 6, 9);
+        assertArrayEquals(new int[]{4, 6}, IntSets.intersectAll(a, b, c));
+        assertArrayEquals(new int[0], IntSets.intersectAll(a, b, IntSets.of(7)));
+        int[] single = IntSets.intersectAll(a);
+        single[0] = 100;
+        assertEquals(1, a[0]);
+    }
+
+    @Test
+    public void testSharedMoviesAndCast() {
+        FakeMovWebApi api = new FakeMovWebApi(50, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor()));
+        // Actor a plays in movies a - 2 to a
+        assertArrayEquals(new int[]{3, 4}, movs.getSharedMovies(4, 5));
+        assertArrayEquals(new int[]{3}, movs.getSharedMovies(3, 4, 5));
+        assertArrayEquals(new int[0], movs.getSharedMovies(3, 6));
+        assertEquals(4, api.count(Endpoint.PERSON_CREDITS));
+        // The cast of movie m are the actors m to m + 2
+        assertArrayEquals(new int[]{4, 5}, movs.getSharedCast(3, 4));
+        assertArrayEquals(new int[]{1, 2, 3}, movs.getCastIds(1));
+        assertEquals(3, api.count(Endpoint.MOVIE_CREDITS));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovAggregations;
+import movlazy.MovAggregations.CoStar;
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.dto.SearchItemDto;
+import movlazy.model.Movie;
+import org.junit.jupiter.api.Test;
+import util.ParallelQueries;
+import util.TaskScope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MovAggregationsTest {
+
+    @Test
+    public void testParallelReduceMatchesSequential() {
+        List<Integer> nums = new ArrayList<>();
+        for (int i = 1; i <= 100_000; i++) nums.add(i);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long sum = ParallelQueries.reduce(pool, nums, () -> 0L, (acc, n) -> acc + n, Long::sum);
+        assertEquals(5_000_050_000L, sum);
+        assertEquals(0L, (long) ParallelQueries.reduce(pool, new ArrayList<Integer>(), () -> 0L, (acc, n) -> acc + n, Long::sum));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testCountAndAverageByYear() {
+        FakeMovWebApi api = new FakeMovWebApi(1000, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor()));
+        MovAggregations aggs = new MovAggregations(movs, new ForkJoinPool(4));
+        int[] ids = new int[1000];
+        for (int i = 0; i < ids.length; i++) ids[i] = i + 1;
+        List<Movie> movies = movs.getMovies(ids);
+
+        // Movie m is released in 1980 + m % 40
+        Map<Integer, Integer> counts = aggs.countBy(movies, mov -> MovAggregations.releaseYear(mov.getReleaseDate()));
+        assertEquals(40, counts.size());
+        assertEquals(25, (int) counts.get(1980));
+        Map<Boolean, Double> avg = aggs.averageBy(movies, mov -> mov.getId() % 2 == 0, Movie::getVoteAverage);
+        assertEquals(4.9, avg.get(true), 1e-9);
+        assertEquals(5.0, avg.get(false), 1e-9);
+
+        // Actor 5 plays in movies 3, 4 and 5
+        SortedMap<Integer, Double> byYear = aggs.averageVoteByYear(5);
+        assertEquals(3, byYear.size());
+        assertEquals(0.4, byYear.get(1984), 1e-9);
+        assertNull(MovAggregations.releaseYear(null));
+    }
+
+    @Test
+    public void testTopCoStars() {
+        FakeMovWebApi api = new FakeMovWebApi(50, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor()));
+        // Actor 5 plays in movies 3, 4 and 5, with casts 3-5, 4-6 and 5-7
+        List<CoStar> top = new MovAggregations(movs).topCoStars(5, 3);
+        assertEquals(3, top.size());
+        assertEquals(4, top.get(0).getId());
+        assertEquals(2, top.get(0).getMovies());
+        assertEquals("Actor 6", top.get(1).getName());
+        assertEquals(1, top.get(2).getMovies());
+        assertEquals(3, api.count(Endpoint.MOVIE_CREDITS));
+        assertEquals(0, api.count(Endpoint.PERSON));
+    }
+
+    @Test
+    public void testTopCoStarsCountsAMovieListedTwiceOnce() {
+        // Actor 5 plays two characters in movie 4, listed twice in the filmography
+        FakeMovWebApi api = new FakeMovWebApi(50, 0) {
+            @Override
+            public SearchItemDto[] getPersonCreditsCast(int personId) {
+                SearchItemDto[] credits = super.getPersonCreditsCast(personId);
+                SearchItemDto[] res = Arrays.copyOf(credits, credits.length + 1);
+                res[credits.length] = credits[1];
+                return res;
+            }
+        };
+        List<CoStar> top = new MovAggregations(new MovService(api)).topCoStars(5, 1);
+        assertEquals(4, top.get(0).getId());
+        assertEquals(2, top.get(0).getMovies());
+    }
+
+    @Test
+    public void testParallelReduceOfLinkedList() {
+        List<Integer> nums = new LinkedList<>();
+        for (int i = 1; i <= 10_000; i++) nums.add(i);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        assertEquals(50_005_000L, (long) ParallelQueries.reduce(pool, nums, () -> 0L, (acc, n) -> acc + n, Long::sum));
+        pool.shutdown();
+    }
+}
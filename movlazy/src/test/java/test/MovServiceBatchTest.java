@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.NotFoundException;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.model.Actor;
+import movlazy.model.CastItem;
+import movlazy.model.Movie;
+import org.junit.jupiter.api.Test;
+import util.TaskScope;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovServiceBatchTest {
+
+    @Test
+    public void testGetMoviesInRequestOrder() {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovServiceConfig config = new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor());
+        MovService movapi = new MovService(api, config);
+        Movie five = movapi.getMovie(5);
+
+        List<Movie> movs = movapi.getMovies(new int[]{7, 5, 7, 3});
+        assertEquals(4, movs.size());
+        assertEquals(7, movs.get(0).getId());
+        assertSame(five, movs.get(1));
+        assertSame(movs.get(0), movs.get(2));
+        assertEquals(3, movs.get(3).getId());
+        // Movie 5 was cached and movie 7 is fetched once
+        assertEquals(3, api.count(Endpoint.MOVIE));
+        assertEquals(1, api.countMovie(7));
+    }
+
+    @Test
+    public void testGetActorsBoundsRequestsInFlight() {
+        AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+        FakeMovWebApi api = new FakeMovWebApi(10, 20) {
+            @Override
+            public PersonDto getPerson(int personId) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    return super.getPerson(personId);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+        MovServiceConfig config = new MovServiceConfig()
+                .fanOut(TaskScope.newThreadPerTaskExecutor())
+                .batchInFlight(4);
+        MovService movapi = new MovService(api, config);
+        int[] ids = new int[32];
+        for (int i = 0; i < ids.length; i++) ids[i] = ids.length - i;
+
+        List<Actor> actors = movapi.getActors(ids);
+        for (int i = 0; i < ids.length; i++) assertEquals("Actor " + ids[i], actors.get(i).getName());
+        assertEquals(32, api.count(Endpoint.PERSON));
+        assertTrue(maxInFlight.get() > 1, "Batch should be concurrent");
+        assertTrue(maxInFlight.get() <= 4, "At most 4 in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    public void testGetMoviesFailsOnMissingId() {
+        MovService movapi = new MovService(new FakeMovWebApi(10, 0),
+                new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor()));
+        assertThrows(NotFoundException.class, () -> movapi.getMovies(new int[]{1, 2, 99}));
+    }
+
+    @Test
+    public void testGetMoviesStopsLoadingAfterAFailure() {
+        // Requests that take a while and ignore interrupts, so only the loop can stop early
+        FakeMovWebApi api = new FakeMovWebApi(100, 0) {
+            @Override
+            public MovieDto getMovie(int id) {
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+                while(System.nanoTime() < end) Thread.yield();
+                return super.getMovie(id);
+            }
+        }.failMovie(1, 1);
+        MovService movapi = new MovService(api, new MovServiceConfig()
+                .fanOut(TaskScope.newThreadPerTaskExecutor())
+                .batchInFlight(2));
+        int[] ids = new int[100];
+        for (int i = 0; i < ids.length; i++) ids[i] = i + 1;
+        assertThrows(IllegalStateException.class, () -> movapi.getMovies(ids));
+        assertTrue(api.count(Endpoint.MOVIE) < 10, "Requests after the failure: " + api.count(Endpoint.MOVIE));
+    }
+
+    @Test
+    public void testCastItemPrefetchesSiblingActors() throws Exception {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovServiceConfig config = new MovServiceConfig()
+                .fanOut(TaskScope.newThreadPerTaskExecutor())
+                .siblingPrefetch(true);
+        MovService movapi = new MovService(api, config);
+        List<CastItem> cast = movapi.getMovieCast(1);
+
+        assertEquals("Actor 1", cast.get(0).getActor().getName());
+        for (int i = 0; i < 100 && api.count(Endpoint.PERSON) < 3; i++) Thread.sleep(10);
+        assertEquals(3, api.count(Endpoint.PERSON));
+        // Siblings are served from the cache
+        assertEquals("Actor 3", cast.get(2).getActor().getName());
+        assertEquals("Actor 2", cast.get(1).getActor().getName());
+        assertEquals(3, api.count(Endpoint.PERSON));
+    }
+}
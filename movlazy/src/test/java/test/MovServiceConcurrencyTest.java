@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.model.Actor;
+import movlazy.model.Movie;
+import org.junit.jupiter.api.Test;
+import util.TaskScope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovServiceConcurrencyTest {
+
+    @Test
+    public void testConcurrentMissesOfSameIdShareOneLoad() throws Exception {
+        final int threads = 16, movies = 50, iterations = 500;
+        FakeMovWebApi api = new FakeMovWebApi(movies, 2);
+        MovService movapi = new MovService(api);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random rnd = new Random(t);
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    int id = 1 + rnd.nextInt(movies);
+                    Movie mov = movapi.getMovie(id);
+                    assertEquals(id, mov.getId());
+                    assertEquals("Actor " + id, mov.getCast().iterator().next().getActor().getName());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) task.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        for (int id = 1; id <= movies; id++)
+            assertEquals(1, api.countMovie(id));
+        assertEquals(movies, api.count(Endpoint.MOVIE));
+        assertEquals(movies, api.count(Endpoint.MOVIE_CREDITS));
+        assertEquals(movies, api.count(Endpoint.PERSON));
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0).failMovie(7, 1);
+        MovService movapi = new MovService(api);
+        assertThrows(IllegalStateException.class, () -> movapi.getMovie(7));
+        assertEquals("Movie 7", movapi.getMovie(7).getOriginalTitle());
+        assertSame(movapi.getMovie(7), movapi.getMovie(7));
+        assertEquals(2, api.countMovie(7));
+    }
+
+    @Test
+    public void testFanOutOnExecutor() {
+        FakeMovWebApi api = new FakeMovWebApi(100, 50);
+        MovServiceConfig config = new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor());
+        MovService movapi = new MovService(api, config);
+
+        long begin = System.currentTimeMillis();
+        List<Movie> movs = movapi.getMovies(movapi.search("any"));
+        List<Actor> actors = movapi.getCastActors(1);
+        long elapsed = System.currentTimeMillis() - begin;
+
+        assertEquals(100, movs.size());
+        assertEquals(3, actors.size());
+        assertEquals(100, api.count(Endpoint.MOVIE));
+        assertEquals(3, api.count(Endpoint.PERSON));
+        assertTrue(elapsed < 100 * 50, "Fan-out should not be sequential: " + elapsed);
+    }
+}
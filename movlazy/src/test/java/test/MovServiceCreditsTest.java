@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.model.Actor;
+import movlazy.model.SearchItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MovServiceCreditsTest {
+
+    @Test
+    public void testFilmographyIsFetchedOnce() {
+        FakeMovWebApi api = new FakeMovWebApi(100, 0);
+        MovService movs = new MovService(api);
+        Actor actor = movs.getActor(12, null);
+        for (int i = 0; i < 5; i++) {
+            int count = 0;
+            for (SearchItem item : actor.getMovies()) count++;
+            assertEquals(3, count);
+        }
+        assertEquals(1, api.count(Endpoint.PERSON_CREDITS));
+    }
+
+    @Test
+    public void testSameMovieIsSharedAcrossSearchAndCredits() {
+        FakeMovWebApi api = new FakeMovWebApi(100, 0);
+        MovService movs = new MovService(api);
+        SearchItem fromSearch = movs.search("movie").iterator().next();
+        // Actor 1 plays only in movie 1, as does actor 3 among others
+        SearchItem fromActor1 = movs.getActorCreditsCast(1).iterator().next();
+        Iterator<SearchItem> actor3 = movs.getActorCreditsCast(3).iterator();
+        assertSame(fromSearch, fromActor1);
+        assertSame(fromSearch, actor3.next());
+        fromSearch.getDetails();
+        fromActor1.getDetails();
+        assertEquals(1, api.countMovie(1));
+    }
+}
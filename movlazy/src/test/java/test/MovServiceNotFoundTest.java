@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MovServiceNotFoundTest {
+
+    @Test
+    public void testDetectsMissingResources() {
+        String status = "{\"status_code\":34,\"status_message\":\"The resource you requested could not be found.\"}";
+        MovWebApi statusApi = new MovWebApi(path -> new ByteArrayInputStream(status.getBytes(StandardCharsets.UTF_8)));
+        assertThrows(NotFoundException.class, () -> statusApi.getMovie(7));
+        assertThrows(NotFoundException.class, () -> statusApi.getMovieCast(7));
+        assertThrows(NotFoundException.class, () -> statusApi.getPerson(7));
+        assertThrows(NotFoundException.class, () -> statusApi.getPersonCreditsCast(7));
+
+        MovWebApi notFoundApi = new MovWebApi(path -> {
+            throw new RuntimeException(new FileNotFoundException(path));
+        });
+        NotFoundException e = assertThrows(NotFoundException.class, () -> notFoundApi.getPerson(7));
+        assertEquals(Endpoint.PERSON, e.getEndpoint());
+        assertEquals(7, e.getId());
+    }
+
+    @Test
+    public void testMissingIdsAreCachedForShorterTime() throws InterruptedException {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().missingExpireAfter(Duration.ofMillis(100)));
+        for (int i = 0; i < 100; i++)
+            assertThrows(NotFoundException.class, () -> movs.getMovie(404));
+        assertEquals(1, api.countMovie(404));
+        assertEquals(99, movs.stats().get("missing").getHitCount());
+        Thread.sleep(150);
+        assertThrows(NotFoundException.class, () -> movs.getMovie(404));
+        assertEquals(2, api.countMovie(404));
+        // Other endpoints with the same id are unaffected
+        assertEquals("Actor 404", movs.getActor(404, null).getName());
+    }
+
+    @Test
+    public void testBloomFilterKeepsMissingIdsExpiry() throws InterruptedException {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovService movs = new MovService(api, new MovServiceConfig()
+                .missingExpireAfter(Duration.ofMillis(100))
+                .missingBloomFilter(100_000, 0.001));
+        for (int i = 0; i < 100; i++)
+            assertThrows(NotFoundException.class, () -> movs.getMovie(404));
+        assertEquals(1, api.countMovie(404));
+        Thread.sleep(150);
+        // Forgotten by both the filter and the missing cache
+        assertThrows(NotFoundException.class, () -> movs.getMovie(404));
+        assertEquals(2, api.countMovie(404));
+        assertEquals("Movie 5", movs.getMovie(5).getOriginalTitle());
+    }
+
+    @Test
+    public void testBloomFilterRemembersIdsEvictedFromMissingCache() {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovService movs = new MovService(api, new MovServiceConfig()
+                .missingCacheSize(10)
+                .missingBloomFilter(10_000, 0.0001));
+        for (int id = 1000; id < 2000; id++) {
+            int dead = id;
+            assertThrows(NotFoundException.class, () -> movs.getMovie(dead));
+        }
+        // A replay of the scan makes no requests, though the cache keeps 10 ids
+        for (int id = 1000; id < 2000; id++) {
+            int dead = id;
+            assertThrows(NotFoundException.class, () -> movs.getMovie(dead));
+        }
+        assertEquals(1000, api.count(Endpoint.MOVIE));
+        for (int id = 1; id <= 10; id++)
+            assertEquals("Movie " + id, movs.getMovie(id).getOriginalTitle());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.Separation;
+import org.junit.jupiter.api.Test;
+import util.TaskScope;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovServiceSeparationTest {
+
+    @Test
+    public void testShortestChainBetweenActors() {
+        FakeMovWebApi api = new FakeMovWebApi(50, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().fanOut(TaskScope.newThreadPerTaskExecutor()));
+
+        // Actor a plays in movies a - 2 to a, thus each movie goes 2 actors further at most
+        Separation sep = movs.getSeparation(1, 7, 6, 100);
+        assertEquals(3, sep.getDegrees());
+        assertArrayEquals(new int[]{1, 3, 5, 7}, sep.getActors());
+        assertArrayEquals(new int[]{1, 3, 5}, sep.getMovies());
+        assertArrayEquals(new String[]{"Actor 1", "Actor 3", "Actor 5", "Actor 7"}, sep.getActorNames());
+        assertEquals("Movie 3", sep.getMovieTitles()[1]);
+        assertEquals(api.count(Endpoint.PERSON_CREDITS) + api.count(Endpoint.MOVIE_CREDITS), sep.getRequests());
+        assertEquals(0, api.count(Endpoint.PERSON));
+
+        // Filmographies and casts of the first search are cached
+        Separation again = movs.getSeparation(7, 1, 6, 100);
+        assertArrayEquals(new int[]{7, 5, 3, 1}, again.getActors());
+        assertTrue(again.getRequests() < sep.getRequests());
+    }
+
+    @Test
+    public void testSameActorAndCoStars() {
+        MovService movs = new MovService(new FakeMovWebApi(50, 0));
+        assertEquals(0, movs.getSeparation(4, 4, 6, 100).getDegrees());
+        Separation sep = movs.getSeparation(4, 5, 6, 100);
+        assertEquals(1, sep.getDegrees());
+        assertEquals("Actor 4", sep.getActorNames()[0]);
+    }
+
+    @Test
+    public void testGivesUpBeyondMaxDegreesOrRequests() {
+        MovService movs = new MovService(new FakeMovWebApi(50, 0));
+        Separation far = movs.getSeparation(1, 40, 6, 1000);
+        assertFalse(far.isConnected());
+        assertFalse(far.isBudgetExceeded());
+        assertEquals(-1, far.getDegrees());
+
+        Separation costly = movs.getSeparation(1, 40, 30, 10);
+        assertFalse(costly.isConnected());
+        assertTrue(costly.isBudgetExceeded());
+        assertTrue(costly.getRequests() <= 10);
+    }
+
+    @Test
+    public void testNamingTheChainStaysWithinBudget() {
+        for (int from = 1; from <= 12; from++)
+            for (int to = from; to <= from + 8; to++)
+                for (int budget = 1; budget <= 12; budget++) {
+                    FakeMovWebApi api = new FakeMovWebApi(50, 0);
+                    Separation sep = new MovService(api).getSeparation(from, to, 6, budget);
+                    int fetched = api.count(Endpoint.PERSON_CREDITS) + api.count(Endpoint.MOVIE_CREDITS);
+                    assertEquals(fetched, sep.getRequests());
+                    assertTrue(fetched <= budget, from + " to " + to + " took " + fetched + " > " + budget);
+                }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.model.Actor;
+import movlazy.model.CastItem;
+import movlazy.model.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MovServiceSnapshotTest {
+
+    @Test
+    public void testRestoredServiceDoesNoRequests() throws IOException {
+        FakeMovWebApi api = new FakeMovWebApi(100, 0);
+        MovService movs = new MovService(api);
+        for (int id = 1; id <= 10; id++) {
+            movs.getMovie(id);
+            movs.getCastActors(id);
+        }
+        Path file = Files.createTempFile("movs", ".snapshot");
+        try {
+            movs.snapshot(file);
+
+            FakeMovWebApi restoredApi = new FakeMovWebApi(100, 0);
+            MovService restored = new MovService(restoredApi);
+            ExecutorService pool = Executors.newSingleThreadExecutor();
+            // 10 movies + 10 casts + 12 actors
+            assertEquals(32, (int) restored.restore(file, pool).join());
+            pool.shutdown();
+
+            Movie mov = restored.getMovie(7);
+            assertEquals("Tagline 7", mov.getTagline());
+            // Suppliers of restored entities navigate through the restored caches
+            CastItem item = mov.getCast().iterator().next();
+            assertEquals("Character 7", item.getCharacter());
+            Actor actor = item.getActor();
+            assertEquals("Biography of actor 7", actor.getBiography());
+            List<Actor> actors = restored.getCastActors(10);
+            assertEquals("Actor 12", actors.get(2).getName());
+            for (Endpoint e : Endpoint.values()) assertEquals(0, restoredApi.count(e));
+
+            // Entries missing from the snapshot are loaded as usual
+            restored.getMovie(50);
+            assertEquals(1, restoredApi.count(Endpoint.MOVIE));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRejectsUnknownVersion() throws IOException {
+        Path file = Files.createTempFile("movs", ".snapshot");
+        try {
+            try(DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(0x4D4F5653);
+                out.writeInt(99);
+            }
+            MovService movs = new MovService(new FakeMovWebApi(10, 0));
+            assertThrows(UncheckedIOException.class, () -> movs.restore(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFailedSnapshotLeavesNoTemporaryFile() throws IOException {
+        MovService movs = new MovService(new FakeMovWebApi(10, 0));
+        movs.getMovie(1);
+        // The snapshot cannot replace a non-empty directory
+        Path dir = Files.createTempDirectory("movs");
+        Path child = Files.createFile(dir.resolve("child"));
+        try {
+            assertThrows(UncheckedIOException.class, () -> movs.snapshot(dir));
+            assertFalse(Files.exists(dir.resolveSibling(dir.getFileName() + ".tmp")));
+        } finally {
+            Files.delete(child);
+            Files.delete(dir);
+        }
+    }
+}
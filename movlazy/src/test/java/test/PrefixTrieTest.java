@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import org.junit.jupiter.api.Test;
+import util.PrefixTrie;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void testCompletesBestScoredFirst() {
+        PrefixTrie<String> trie = new PrefixTrie<>(2);
+        trie.put("hulk", 1, 6.0, "Hulk");
+        trie.put("hulk vs thor", 2, 7.0, "Hulk vs. Thor");
+        trie.put("hulk vs wolverine", 3, 6.5, "Hulk vs. Wolverine");
+        trie.put("hugo", 4, 7.2, "Hugo");
+        assertEquals(Arrays.asList("Hugo", "Hulk vs. Thor"), trie.complete("hu"));
+        assertEquals(Arrays.asList("Hulk vs. Thor", "Hulk vs. Wolverine"), trie.complete("hulk"));
+        assertEquals(Arrays.asList("Hulk vs. Wolverine"), trie.complete("hulk vs w"));
+        assertEquals(0, trie.complete("hulks").size());
+        assertEquals(4, trie.size());
+    }
+
+    @Test
+    public void testPutSameIdReplacesScore() {
+        PrefixTrie<String> trie = new PrefixTrie<>(3);
+        trie.put("hulk", 1, 6.0, "Hulk");
+        trie.put("hulk 2", 2, 5.0, "Hulk 2");
+        trie.put("hulk", 1, 4.0, "Hulk");
+        assertEquals(Arrays.asList("Hulk 2", "Hulk"), trie.complete("hul"));
+        // The same id under another key shows up once, with its best score
+        trie.put("incredible hulk", 2, 8.0, "Hulk 2");
+        trie.put("2", 2, 8.0, "Hulk 2");
+        assertEquals(Arrays.asList("Hulk 2", "Hulk"), trie.complete(""));
+        assertEquals(4, trie.size());
+    }
+
+    @Test
+    public void testRemovePrunesKeys() {
+        PrefixTrie<String> trie = new PrefixTrie<>(2);
+        trie.put("hulk", 1, 6.0, "Hulk");
+        trie.put("hulk vs thor", 2, 7.0, "Hulk vs. Thor");
+        trie.put("hulk vs wolverine", 3, 6.5, "Hulk vs. Wolverine");
+        trie.put("hugo", 4, 7.2, "Hugo");
+        trie.remove("hulk vs thor", 2);
+        trie.remove("hugo", 1); // Not under that key
+        trie.remove("hulk vs", 3); // Nor that one
+        assertEquals(Arrays.asList("Hugo", "Hulk vs. Wolverine"), trie.complete("hu"));
+        assertEquals(0, trie.complete("hulk vs t").size());
+        assertEquals(3, trie.size());
+        trie.remove("hulk", 1);
+        // Left with a single child, the hulk node is merged with it
+        assertEquals(Arrays.asList("Hulk vs. Wolverine"), trie.complete("hulk"));
+        assertEquals(Arrays.asList("Hulk vs. Wolverine"), trie.complete("hulk vs w"));
+        trie.remove("hulk vs wolverine", 3);
+        trie.remove("hugo", 4);
+        assertEquals(0, trie.complete("").size());
+        assertEquals(0, trie.size());
+        trie.put("hulk", 1, 6.0, "Hulk");
+        assertEquals(Arrays.asList("Hulk"), trie.complete("h"));
+    }
+
+    @Test
+    public void testCompletesWhileInserting() throws Exception {
+        PrefixTrie<Integer> trie = new PrefixTrie<>(5);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Future<?>[] writers = new Future<?>[2];
+        for (int w = 0; w < writers.length; w++) {
+            int from = w * 5000;
+            writers[w] = pool.submit(() -> {
+                for (int i = from; i < from + 5000; i++) trie.put("movie " + i, i, i, i);
+            });
+        }
+        Future<Integer> reader = pool.submit(() -> {
+            int reads = 0;
+            while(!writers[0].isDone() || !writers[1].isDone()) {
+                List<Integer> top = trie.complete("movie 1");
+                for (int i = 1; i < top.size(); i++) assertTrue(top.get(i - 1) > top.get(i));
+                reads++;
+            }
+            return reads;
+        });
+        for (Future<?> w : writers) w.get();
+        assertTrue(reader.get() > 0);
+        pool.shutdown();
+        assertEquals(10000, trie.size());
+        assertEquals(Arrays.asList(9999, 9998, 9997, 9996, 9995), trie.complete("movie "));
+        assertEquals(Arrays.asList(1999, 1998, 1997, 1996, 1995), trie.complete("movie 1"));
+    }
+}
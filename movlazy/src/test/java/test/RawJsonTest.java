@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.NotFoundException;
+import movlazy.dto.MovieDto;
+import movlazy.dto.PersonDto;
+import movlazy.model.Actor;
+import movlazy.model.Movie;
+import org.junit.jupiter.api.Test;
+import util.FileRequest;
+import util.json.RawJson;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RawJsonTest {
+
+    @Test
+    public void testIndexAndDecode() {
+        byte[] json = ("{\"skip\": {\"a\": [1, \"}\", {\"b\": null}]}, \"id\" : 42, "
+                + "\"text\": \"Tom \\\"Hulk\\\" \\u00e9\\nA\\u00e7\\u00e3o\", \"none\": null, \"vote\": 7.5}")
+                .getBytes(StandardCharsets.UTF_8);
+        int[] b = RawJson.index(json, "id", "text", "none", "vote", "missing");
+        assertEquals(42, RawJson.decodeInt(json, b[0], b[1]));
+        assertEquals("Tom \"Hulk\" é\nAção", RawJson.decodeString(json, b[2], b[3]));
+        assertNull(RawJson.decodeString(json, b[4], b[5]));
+        assertEquals(7.5, RawJson.decodeDouble(json, b[6], b[7]));
+        assertEquals(-1, b[8]);
+        assertThrows(IllegalArgumentException.class, () -> RawJson.index("{\"id\": 1".getBytes(), "id"));
+    }
+
+    @Test
+    public void testLazyModelMatchesGsonDecoding() {
+        MovWebApi api = new MovWebApi(new FileRequest());
+        MovService movs = new MovService(api, new MovServiceConfig().lazyDecoding(true));
+        MovieDto dto = api.getMovie(421831);
+        Movie mov = movs.getMovie(421831);
+        assertEquals(dto.getOriginalTitle(), mov.getOriginalTitle());
+        assertEquals(dto.getVoteAverage(), mov.getVoteAverage());
+        assertEquals(dto.getTagline(), mov.getTagline());
+        assertEquals(dto.getOverview(), mov.getOverview());
+        assertEquals(dto.getReleaseDate(), mov.getReleaseDate());
+        PersonDto person = api.getPerson(1696386);
+        Actor actor = movs.getActor(1696386, null);
+        assertEquals(person.getName(), actor.getName());
+        assertEquals(person.getPlace_of_birth(), actor.getPlaceOfBirth());
+        assertEquals(person.getBiography(), actor.getBiography());
+    }
+
+    @Test
+    public void testLazyModelDetectsMissingIds() {
+        FakeMovWebApi api = new FakeMovWebApi(10, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().lazyDecoding(true));
+        assertEquals("Overview of movie 7", movs.getMovie(7).getOverview());
+        assertThrows(NotFoundException.class, () -> movs.getMovie(70));
+        assertThrows(NotFoundException.class, () -> movs.getMovie(70));
+        assertEquals(2, api.count(Endpoint.MOVIE));
+    }
+}
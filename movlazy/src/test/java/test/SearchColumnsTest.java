@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.columnar.SearchColumns;
+import movlazy.columnar.Selection;
+import movlazy.crawler.Crawler;
+import movlazy.dto.SearchItemDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchColumnsTest {
+
+    private static SearchItemDto[] batch(int from, int to) {
+        SearchItemDto[] res = new SearchItemDto[to - from + 1];
+        for (int id = from; id <= to; id++)
+            res[id - from] = new SearchItemDto(id, "Movie " + id % 10, (2000 + id % 5) + "-06-01", (id % 100) / 10.0);
+        return res;
+    }
+
+    @Test
+    public void testAppendKeepsOneRowPerMovie() {
+        SearchColumns cols = new SearchColumns(16);
+        cols.append(batch(1, 100));
+        cols.append(new SearchItemDto(7, "Movie 7", "2002-06-01", 9.9));
+        cols.append(new SearchItemDto(200, "Hulk", null, 5.0));
+        assertEquals(101, cols.size());
+        assertEquals(11, cols.getTitleCount());
+        int row = cols.rowOf(7);
+        assertEquals(9.9, cols.getVoteAverage(row));
+        assertEquals("Movie 7", cols.getTitle(row));
+        assertEquals(2002, cols.getReleaseYear(row));
+        assertEquals(0, cols.getReleaseYear(cols.rowOf(200)));
+        assertEquals(-1, cols.rowOf(300));
+    }
+
+    @Test
+    public void testFilterAndAggregate() {
+        SearchColumns cols = new SearchColumns();
+        cols.append(batch(1, 1000));
+        Selection good = cols.voteAtLeast(9.0);
+        // Ids ending in 90 to 99
+        assertEquals(100, good.count());
+        Selection recent = cols.releasedBetween(2003, 2004);
+        assertEquals(400, recent.count());
+        Selection both = good.and(recent);
+        assertEquals(40, both.count());
+        assertEquals(960, both.not().count());
+        assertEquals(460, good.or(recent).count());
+        assertArrayEquals(new int[]{93, 94, 98, 99}, Arrays.copyOf(cols.ids(both), 4));
+        assertEquals(100, cols.titled("Movie 3").count());
+        assertEquals(0, cols.titled("Hulk").count());
+
+        assertEquals(4.95, cols.averageVote(cols.all()), 1e-9);
+        assertEquals(9.9, cols.maxVoteAverage(recent), 1e-9);
+        SortedMap<Integer, Double> byYear = cols.averageVoteByYear(good);
+        assertEquals(5, byYear.size());
+        // Ids ending in 90 and 95
+        assertEquals(9.25, byYear.get(2000), 1e-9);
+        assertTrue(Double.isNaN(cols.averageVote(cols.titled("Hulk"))));
+    }
+
+    @Test
+    public void testStoresFilmographiesOfACrawl() {
+        FakeMovWebApi api = new FakeMovWebApi(50, 0);
+        SearchColumns cols = new SearchColumns();
+        new Crawler(api, cols).details(false).addActor(1).run();
+        assertEquals(50, cols.size());
+        assertEquals(50, cols.all().count());
+    }
+
+    @Test
+    public void testRowOfWhileGrowing() throws InterruptedException {
+        SearchColumns cols = new SearchColumns(16);
+        Thread writer = new Thread(() -> {
+            for (int id = 1; id <= 20_000; id += 100) cols.append(batch(id, id + 99));
+        });
+        writer.start();
+        while(writer.isAlive()) {
+            // Ids are appended in order, so each id up to the size read is found
+            int n = cols.size();
+            for (int id = 1; id <= n; id++) {
+                int row = cols.rowOf(id);
+                assertTrue(row >= 0, "Missing published id " + id);
+                assertEquals(id, cols.getId(row));
+            }
+        }
+        writer.join();
+        for (int id = 1; id <= 20_000; id++) assertEquals(id, cols.getId(cols.rowOf(id)));
+    }
+}
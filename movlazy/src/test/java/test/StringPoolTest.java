@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.model.CastItem;
+import org.junit.jupiter.api.Test;
+import util.StringPool;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StringPoolTest {
+
+    @Test
+    public void testInternReturnsPooledCopy() {
+        StringPool pool = new StringPool(16);
+        String himself = new String("Himself");
+        String other = new String("Himself");
+        assertNotSame(himself, other);
+        assertSame(himself, pool.intern(himself));
+        assertSame(himself, pool.intern(other));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(40 + 2 * 7, pool.getBytesSaved());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        StringPool pool = new StringPool(100);
+        assertEquals(128, pool.getCapacity());
+        for (int i = 0; i < 100_000; i++) pool.intern("value " + i);
+        // Recent values replace older ones sharing their slot
+        String last = new String("value 99999");
+        assertSame(pool.intern("value 99999"), pool.intern(last));
+    }
+
+    @Test
+    public void testMovServiceSharesRepeatedStrings() {
+        MovService movs = new MovService(new FakeMovWebApi(10, 0));
+        // Actor 3 plays Character 3 in movies 1, 2 and 3
+        List<CastItem> cast1 = movs.getMovieCast(1);
+        List<CastItem> cast3 = movs.getMovieCast(3);
+        assertSame(cast1.get(2).getCharacter(), cast3.get(0).getCharacter());
+        assertSame(cast1.get(2).getName(), cast3.get(0).getName());
+        assertTrue(movs.stringPool().getBytesSaved() > 0);
+    }
+
+    @Test
+    public void testLazyAndEagerModelsShareRepeatedStrings() {
+        for (boolean lazy : new boolean[]{false, true}) {
+            MovService movs = new MovService(new FakeMovWebApi(50, 0), new MovServiceConfig().lazyDecoding(lazy));
+            // Movies 1 and 41 are both released on 1981-01-01, and every actor is born in Lisbon
+            assertEquals("1981-01-01", movs.getMovie(1).getReleaseDate());
+            assertSame(movs.getMovie(1).getReleaseDate(), movs.getMovie(41).getReleaseDate());
+            assertEquals("Lisbon", movs.getActor(1, null).getPlaceOfBirth());
+            assertSame(movs.getActor(1, null).getPlaceOfBirth(), movs.getActor(2, null).getPlaceOfBirth());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import org.junit.jupiter.api.Test;
+import util.TaskScope;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaskScopeTest {
+
+    private static final Executor pool = TaskScope.newThreadPerTaskExecutor();
+
+    @Test
+    public void testJoinRethrowsFailure() {
+        IllegalStateException err = new IllegalStateException("boom");
+        try (TaskScope scope = new TaskScope(pool)) {
+            scope.fork(() -> { throw err; });
+            IllegalStateException thrown = assertThrows(IllegalStateException.class, scope::join);
+            assertSame(err, thrown);
+        }
+    }
+
+    @Test
+    public void testJoinSeesFailureOfTheTaskItWaitedFor() {
+        for (int i = 0; i < 1000; i++) {
+            try (TaskScope scope = new TaskScope(pool)) {
+                scope.fork(() -> { throw new IllegalStateException(); });
+                assertThrows(IllegalStateException.class, scope::join);
+            }
+        }
+    }
+
+    @Test
+    public void testFailureCancelsSiblings() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (TaskScope scope = new TaskScope(pool)) {
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            started.await();
+            scope.fork(() -> { throw new IllegalStateException(); });
+            assertThrows(IllegalStateException.class, scope::join);
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCloseAwaitsRunningTasks() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        TaskScope scope = new TaskScope(pool);
+        scope.fork(() -> {
+            started.countDown();
+            // Ignores the interrupt of close and keeps running for a while
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while(System.nanoTime() < end) Thread.yield();
+            finished.set(true);
+            return null;
+        });
+        started.await();
+        scope.close();
+        assertTrue(finished.get());
+    }
+}
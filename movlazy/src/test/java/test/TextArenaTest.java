@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.model.Actor;
+import movlazy.model.Movie;
+import org.junit.jupiter.api.Test;
+import util.arena.TextArena;
+import util.arena.TextArena.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TextArenaTest {
+
+    @Test
+    public void testStoresUtf8Texts() {
+        TextArena arena = new TextArena(64);
+        Text pt = arena.put("Ação e aventura, 日本語");
+        Text longer = arena.put(String.join("", Collections.nCopies(100, "overview ")));
+        assertNull(arena.put(null));
+        assertEquals("Ação e aventura, 日本語", pt.get());
+        assertEquals(900, longer.get().length());
+        assertEquals(2, arena.getTextCount());
+    }
+
+    @Test
+    public void testUnreachableTextsAreReleasedAndCompacted() throws InterruptedException {
+        TextArena arena = new TextArena(1024);
+        List<Text> kept = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Text text = arena.put("text number " + i);
+            if(i % 10 == 0) kept.add(text);
+        }
+        long capacity = arena.getCapacityBytes();
+        // Released texts are only noticed by the arena on later puts
+        for (int i = 0; i < 50 && arena.getTextCount() > kept.size() + 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            kept.add(arena.put("extra"));
+            kept.remove(kept.size() - 1);
+        }
+        assertTrue(arena.getCompactionCount() > 0);
+        assertTrue(arena.getCapacityBytes() < capacity / 2, "Capacity " + arena.getCapacityBytes());
+        for (int i = 0; i < 100; i++) assertEquals("text number " + i * 10, kept.get(i).get());
+    }
+
+    @Test
+    public void testMovServiceKeepsTextsOffHeap() {
+        MovService movs = new MovService(new FakeMovWebApi(10, 0), new MovServiceConfig().offHeapText(1 << 16));
+        Movie mov = movs.getMovie(3);
+        Actor actor = movs.getActor(4, null);
+        assertEquals("Overview of movie 3", mov.getOverview());
+        assertEquals("Tagline 3", mov.getTagline());
+        assertEquals("Biography of actor 4", actor.getBiography());
+        assertEquals(3, movs.textArena().getTextCount());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import movlazy.MovWebApi;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.ThrottledMovWebApi;
+import org.junit.jupiter.api.Test;
+import util.FileRequest;
+import util.IRequest;
+import util.TaskScope;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ThrottledMovWebApiTest {
+
+    @Test
+    public void testConcurrentRequestsPerEndpointAreCapped() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        IRequest files = new FileRequest();
+        IRequest req = path -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return files.getBody(path);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+        Map<Endpoint, Integer> caps = new EnumMap<>(Endpoint.class);
+        caps.put(Endpoint.MOVIE, 2);
+        MovWebApi api = new ThrottledMovWebApi(req, caps);
+        try (TaskScope scope = new TaskScope(TaskScope.newThreadPerTaskExecutor())) {
+            for (int i = 0; i < 12; i++)
+                scope.fork(() -> api.getMovie(421831));
+            scope.join();
+        }
+        assertEquals(2, peak.get());
+    }
+}
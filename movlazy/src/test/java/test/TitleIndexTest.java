@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018 Miguel Gamboa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package test;
+
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi.Endpoint;
+import movlazy.TitleIndex;
+import movlazy.model.SearchItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static util.Queries.count;
+import static util.Queries.map;
+import static util.Queries.toList;
+
+public class TitleIndexTest {
+
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("amelie", "o", "fabuloso", "destino", "2001"),
+                TitleIndex.tokenize("Amélie: O Fabuloso   Destino (2001)"));
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr"));
+            assertEquals(Arrays.asList("the", "incredible", "hulk"), TitleIndex.tokenize("THE INCREDIBLE HULK"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testPrefixMatchRankedByVote() {
+        TitleIndex index = new TitleIndex(10);
+        index.add(new SearchItem(1, "The Incredible Hulk", "2008", 6.1, null));
+        index.add(new SearchItem(2, "Hulk", "2003", 5.4, null));
+        index.add(new SearchItem(3, "Hulk Vs.", "2009", 6.8, null));
+        index.add(new SearchItem(4, "Shamelessly She-Hulk", "2016", 8.0, null));
+        assertEquals(Arrays.asList(4, 3, 1, 2), ids(index.search("hul", 10)));
+        assertEquals(Arrays.asList(1), ids(index.search("incred HULK", 10)));
+        assertEquals(Arrays.asList(4, 3), ids(index.search("hulk", 2)));
+        assertTrue(index.search("hulka", 10).isEmpty());
+        // Added again with its original title
+        index.add(new SearchItem(2, "Hulk", "2003", 5.4, null), "O Incrível Hulk");
+        assertEquals(Arrays.asList(1, 2), ids(index.search("incr", 10)));
+    }
+
+    @Test
+    public void testRemovesLeastRecentlyAddedBeyondMaxSize() {
+        TitleIndex index = new TitleIndex(3);
+        index.add(new SearchItem(1, "Hulk", "2003", 5.4, null));
+        index.add(new SearchItem(2, "Hulk Vs.", "2009", 6.8, null));
+        index.add(new SearchItem(3, "The Incredible Hulk", "2008", 6.1, null));
+        index.add(new SearchItem(1, "Hulk", "2003", 5.4, null), "Hulk Unleashed"); // Now the latest
+        index.add(new SearchItem(4, "Planet Hulk", "2010", 7.0, null));
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(4, 3, 1), ids(index.search("hulk", 10)));
+        assertEquals(Arrays.asList(1), ids(index.search("unleash", 10)));
+        assertTrue(index.search("vs", 10).isEmpty());
+        for (int id = 5; id < 8; id++) index.add(new SearchItem(id, "Batman " + id, null, 5.0, null));
+        assertTrue(index.search("hulk", 10).isEmpty());
+        assertEquals(Arrays.asList(5, 6, 7), ids(index.search("batman", 10)));
+    }
+
+    @Test
+    public void testSearchLocalFirst() {
+        FakeMovWebApi api = new FakeMovWebApi(100, 0);
+        MovService movs = new MovService(api, new MovServiceConfig().titleIndex(true));
+        assertEquals(100, count(movs.search("movie")));
+        int searches = api.count(Endpoint.SEARCH);
+        assertEquals(Arrays.asList(19, 18, 17, 16, 15), ids(movs.searchLocal("mov 1", 5)));
+        assertEquals(100, count(movs.searchLocalFirst("movie", 10)));
+        assertEquals(searches, api.count(Endpoint.SEARCH));
+        // Not enough local matches, thus searched upstream
+        movs.searchLocalFirst("movie 7", 20).iterator().next();
+        assertEquals(searches + 1, api.count(Endpoint.SEARCH));
+        // Movies fetched by details are indexed too
+        MovService other = new MovService(api, new MovServiceConfig().titleIndex(true).titleIndexSize(10));
+        other.getMovie(42);
+        assertEquals(Arrays.asList(42), ids(other.searchLocal("movie 42", 10)));
+        for (int id = 1; id <= 10; id++) other.getMovie(id);
+        assertEquals(10, other.titleIndex().size());
+        assertTrue(other.searchLocal("movie 42", 10).isEmpty());
+    }
+
+    private static List<Integer> ids(Iterable<SearchItem> items) {
+        return toList(map(SearchItem::getId, items));
+    }
+}
@@ -17,11 +17,77 @@
 
 package movweb;
 
+import com.google.common.html.HtmlEscapers;
+import com.google.gson.Gson;
+import movlazy.Autocomplete;
+import movlazy.MovService;
+import movlazy.MovServiceConfig;
+import movlazy.MovWebApi;
+import movlazy.NotFoundException;
+import movlazy.Separation;
+import movlazy.model.SearchItem;
+import util.HttpRequest;
+import util.Queries;
+import util.TaskScope;
+
+import javax.servlet.http.HttpServletRequest;
+
 public class App {
 
+    private static final int MAX_DEGREES = 6;
+    private static final int MAX_REQUESTS = 200;
+
     public static void main(String[] args) throws Exception {
+        MovService movs = new MovService(new MovWebApi(new HttpRequest()), new MovServiceConfig()
+                .fanOut(TaskScope.newThreadPerTaskExecutor()));
+        Autocomplete autocomplete = new Autocomplete(movs);
         new HttpServer(3000)
                 .addHandler("/", req -> "Hello World!!!")
+                .addHandler("/search", req -> search(movs, req.getParameter("name")))
+                .addHandler("/autocomplete", "application/json",
+                        req -> autocomplete.toJson(req.getParameter("q"), req.getParameter("k")))
+                .addHandler("/separation", "application/json", req -> separation(movs, req))
                 .run();
     }
+
+    /**
+     * E.g. /separation?from=4756&to=1245
+     * Missing, malformed or unknown actor ids give an empty chain.
+     */
+    private static String separation(MovService movs, HttpServletRequest req) {
+        Integer from = parseId(req.getParameter("from"));
+        Integer to = parseId(req.getParameter("to"));
+        Separation sep;
+        if(from == null || to == null) sep = Separation.notFound(0, false);
+        else {
+            try {
+                sep = movs.getSeparation(from, to, MAX_DEGREES, MAX_REQUESTS);
+            } catch (NotFoundException e) {
+                sep = Separation.notFound(0, false);
+            }
+        }
+        return new Gson().toJson(sep);
+    }
+
+    private static Integer parseId(String id) {
+        if(id == null) return null;
+        try {
+            int res = Integer.parseInt(id.trim());
+            return res > 0 ? res : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String search(MovService movs, String name) {
+        StringBuilder html = new StringBuilder("<ul>");
+        if(name != null)
+            for (SearchItem item : Queries.limit(movs.search(name), 20))
+                html.append("<li>").append(escape(item.getTitle())).append(" (").append(item.getVoteAverage()).append(")</li>");
+        return html.append("</ul>").toString();
+    }
+
+    private static String escape(String text) {
+        return text == null ? "" : HtmlEscapers.htmlEscaper().escape(text);
+    }
 }
@@ -54,10 +54,14 @@ public class HttpServer {
     }
 
     public HttpServer addHandler(String path, HttpGetHandler handler) {
+        return addHandler(path, "text/html", handler);
+    }
+
+    public HttpServer addHandler(String path, String contentType, HttpGetHandler handler) {
         /*
          * Associação entre Path <-> Servlet
          */
-        container.addServlet(new ServletHolder(new HtmlRenderServlet(handler)), path);
+        container.addServlet(new ServletHolder(new HtmlRenderServlet(contentType, handler)), path);
         return this;
     }
 
@@ -67,16 +71,18 @@ public class HttpServer {
     }
 
     static class HtmlRenderServlet extends HttpServlet {
+        private final String contentType;
         private final HttpGetHandler handler;
 
-        public HtmlRenderServlet(HttpGetHandler handler) {
+        public HtmlRenderServlet(String contentType, HttpGetHandler handler) {
+            this.contentType = contentType;
             this.handler = handler;
         }
 
         @Override
         public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, IOException {
             Charset utf8 = Charset.forName("utf-8");
-            resp.setContentType(String.format("text/html; charset=%s", utf8.name()));
+            resp.setContentType(String.format("%s; charset=%s", contentType, utf8.name()));
 
             String respBody = handler.apply(req);
 